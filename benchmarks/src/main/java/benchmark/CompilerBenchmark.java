@@ -0,0 +1,126 @@
+package benchmark;
+
+import ast.SLPVisitor;
+import ast.VMVisitor;
+import ast.nodes.Node;
+import evaluator.CodeBuilder;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.SVMLexer;
+import parser.SVMParser;
+import parser.SimpLanPlusLexer;
+import parser.SimpLanPlusParser;
+import utils.CompilationContext;
+import utils.SymbolTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every compilation stage measured apart, each one on the output of the previous stages prepared once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    @Param({"100"})
+    public int depth;
+
+    private String source;
+    private ParseTree tree;
+    private Node ast;
+    private String assembly;
+
+    @Setup
+    public void setup() {
+        source = Programs.generate(size, depth);
+        tree = parse();
+        ast = new SLPVisitor().visit(tree);
+
+        if (!ast.checkSemantics(new SymbolTable(new CompilationContext()), 0).isEmpty())
+            throw new IllegalStateException("Benchmark program has semantic errors");
+
+        ast.typeCheck();
+        assembly = generate().toAssembly();
+    }
+
+    /**
+     * SimpLanPlusLexer: tokens of the whole source.
+     */
+    @Benchmark
+    public int lex() {
+        CommonTokenStream tokens = new CommonTokenStream(new SimpLanPlusLexer(CharStreams.fromString(source)));
+        tokens.fill();
+
+        return tokens.size();
+    }
+
+    /**
+     * SimpLanPlusParser: parse tree of the source, lexing included.
+     */
+    @Benchmark
+    public ParseTree parse() {
+        return new SimpLanPlusParser(new CommonTokenStream(new SimpLanPlusLexer(CharStreams.fromString(source)))).prog();
+    }
+
+    /**
+     * SLPVisitor: abstract syntax tree of the parse tree.
+     */
+    @Benchmark
+    public Node buildAst() {
+        return new SLPVisitor().visit(tree);
+    }
+
+    @Benchmark
+    public Object checkSemantics() {
+        return ast.checkSemantics(new SymbolTable(new CompilationContext()), 0);
+    }
+
+    @Benchmark
+    public Node typeCheck() {
+        return ast.typeCheck();
+    }
+
+    /**
+     * Code generation into the instruction builder, labels resolved.
+     */
+    @Benchmark
+    public int[] codeGeneration() {
+        return generate().build();
+    }
+
+    /**
+     * VMVisitor: assembly of the generated code printed as text, SVM lexing and parsing included.
+     */
+    @Benchmark
+    public int[] assemble() {
+        VMVisitor visitor = new VMVisitor();
+        visitor.visit(new SVMParser(new CommonTokenStream(new SVMLexer(CharStreams.fromString(assembly)))).assembly());
+
+        return visitor.image;
+    }
+
+    private CodeBuilder generate() {
+        CodeBuilder code = new CodeBuilder();
+        ast.codeGeneration(new CompilationContext(), code);
+
+        return code;
+    }
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import ast.SLPVisitor;
+import ast.nodes.Node;
+import evaluator.ClosureVM;
+import evaluator.CodeBuilder;
+import evaluator.CompiledVM;
+import evaluator.ExecuteVM;
+import evaluator.Superinstructions;
+import evaluator.Tracer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.SimpLanPlusLexer;
+import parser.SimpLanPlusParser;
+import utils.CompilationContext;
+import utils.SymbolTable;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecuteVM.cpu() and the other engines on compiled programs. Besides the time of a run, the instructions
+ * counter reports the SVM instructions executed per second. As in Main, the jvm engine translates the
+ * program to JVM bytecode on every run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss256m")
+public class ExecuteBenchmark {
+    @Param({"10", "100"})
+    public int size;
+
+    @Param({"100", "1000", "10000"})
+    public int depth;
+
+    @Param({"switch", "closure", "jvm"})
+    public String engine;
+
+    private int[] image;
+    private int memSize;
+    // SVM instructions executed by a run of the program, superinstructions not fused
+    private long instructions;
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * Instructions executed in the iteration, reported by JMH as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long instructions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            instructions = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Node ast = new SLPVisitor().visit(new SimpLanPlusParser(new CommonTokenStream(
+                new SimpLanPlusLexer(CharStreams.fromString(Programs.generate(size, depth))))).prog());
+        CompilationContext context = new CompilationContext();
+        ast.checkSemantics(new SymbolTable(context), 0);
+        ast.typeCheck();
+
+        CodeBuilder code = new CodeBuilder();
+        ast.codeGeneration(context, code);
+        int[] program = code.build();
+        memSize = Programs.memorySize(depth);
+
+        long[] steps = new long[1];
+        ExecuteVM counter = new ExecuteVM(program, memSize, new Tracer() {
+            public void step(int step, int opcode, int[] registers) {
+                steps[0]++;
+            }
+
+            public void write(int address, int value) {
+            }
+
+            public void close() {
+            }
+        });
+        counter.setOutput(out);
+        counter.cpu();
+        instructions = steps[0];
+
+        image = new Superinstructions().fuse(program);
+    }
+
+    @Benchmark
+    public int run(Counters counters) {
+        ExecuteVM vm = switch (engine) {
+            case "closure" -> new ClosureVM(image, memSize, null);
+            case "jvm" -> CompiledVM.create(image, memSize, null);
+            default -> new ExecuteVM(image, memSize, null);
+        };
+        vm.setOutput(out);
+        vm.cpu();
+        counters.instructions += instructions;
+
+        return vm.read(ExecuteVM.A0);
+    }
+}
@@ -0,0 +1,37 @@
+package benchmark;
+
+/**
+ * Generator of the SimpLanPlus programs benchmarked.
+ */
+public final class Programs {
+    private Programs() {
+    }
+
+    /**
+     * Build a program with a chain of functions, each one calling the previous one, and a recursive function.
+     *
+     * @param size Number of functions of the chain, which makes the source grow linearly.
+     * @param depth Depth of the recursion run by the program.
+     * @return Program source.
+     */
+    public static String generate(int size, int depth) {
+        StringBuilder source = new StringBuilder("int f0(int n){ n + 1 }\n");
+
+        for (int k = 1; k < size; k++)
+            source.append("int f").append(k).append("(int n){ int a; int b; a = n + ").append(k)
+                    .append("; b = a * 2; if (b > a) { b - a + f").append(k - 1).append("(n) } else { a } }\n");
+
+        source.append("int rec(int n){ if (n == 0) { 0 } else { rec(n - 1) + 1 } }\n");
+        source.append("f").append(size - 1).append("(1) + rec(").append(depth).append(")\n");
+
+        return source.toString();
+    }
+
+    /**
+     * @param depth Depth of the recursion run by the program.
+     * @return Memory the VM needs to run the program.
+     */
+    public static int memorySize(int depth) {
+        return 1000 + 16 * depth;
+    }
+}
@@ -0,0 +1,106 @@
+package ast;
+
+import ast.nodes.FunCallNode;
+import ast.nodes.FunDecNode;
+import ast.nodes.Node;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Dead code elimination of a checked program:
+ * - functions no call reaches from the statements and the expression of the program, following the call graph,
+ *   are not generated;
+ * - assignments whose value is never read are removed, see {@link Node#removeDeadStores}.
+ */
+public class DeadCodeEliminator {
+    /**
+     * Functions of the program by label.
+     */
+    private final HashMap<String, FunDecNode> functions = new HashMap<>();
+    /**
+     * Labels of the functions reached so far.
+     */
+    private final HashSet<String> called = new HashSet<>();
+    /**
+     * Functions reached and not visited yet.
+     */
+    private final ArrayDeque<FunDecNode> pending = new ArrayDeque<>();
+
+    private DeadCodeEliminator() {
+    }
+
+    /**
+     * Mark the functions of a program that are never called.
+     *
+     * @param program Root of the program, checked without errors.
+     * @return Number of functions marked.
+     */
+    public static int removeUncalledFunctions(Node program) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        eliminator.collectFunctions(program);
+        eliminator.visit(program);
+
+        while (!eliminator.pending.isEmpty())
+            eliminator.visit(eliminator.pending.pop());
+
+        int removed = 0;
+
+        for (FunDecNode function : eliminator.functions.values()) {
+            if (!eliminator.called.contains(function.getLabel())) {
+                function.markUncalled();
+                removed++;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Remove the dead assignments of a program.
+     *
+     * @param program Root of the program, checked without errors.
+     * @return Number of assignments removed.
+     */
+    public static int removeDeadStores(Node program) {
+        return program.removeDeadStores(new HashSet<>(), new HashSet<>());
+    }
+
+    private void collectFunctions(Node program) {
+        ArrayDeque<Node> nodes = new ArrayDeque<>();
+        nodes.push(program);
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+
+            if (node instanceof FunDecNode function)
+                functions.put(function.getLabel(), function);
+
+            for (Node child : node.getChildren())
+                nodes.push(child);
+        }
+    }
+
+    /**
+     * Reach the functions called by a node, without entering the functions declared in it.
+     *
+     * @param root Program or function visited.
+     */
+    private void visit(Node root) {
+        ArrayDeque<Node> nodes = new ArrayDeque<>(root.getChildren());
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+
+            if (node instanceof FunDecNode)
+                continue;
+
+            if (node instanceof FunCallNode call && called.add(call.getLabel()))
+                pending.push(functions.get(call.getLabel()));
+
+            for (Node child : node.getChildren())
+                nodes.push(child);
+        }
+    }
+}
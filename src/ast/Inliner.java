@@ -0,0 +1,186 @@
+package ast;
+
+import ast.nodes.BodyNode;
+import ast.nodes.BoolNode;
+import ast.nodes.FunCallNode;
+import ast.nodes.FunDecNode;
+import ast.nodes.FunStmNode;
+import ast.nodes.IdNode;
+import ast.nodes.IntNode;
+import ast.nodes.Node;
+import ast.nodes.ParamNode;
+import ast.nodes.ProgComplexNode;
+import ast.nodes.VarDeclarationNode;
+import utils.FreeNames;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Inlining of small global functions: a call to a function whose body is only an expression is replaced by a copy
+ * of that expression, with the arguments in place of the parameters, saving the frame set up and torn down by the
+ * call. Global functions are expanded in declaration order, so the functions a body calls, declared before it, are
+ * already expanded when it is copied; a function that calls itself is never expanded, which bounds the expansion.
+ * A call is expanded only when its meaning does not change:
+ * - the function is not hidden at the call by a declaration of the global function the call is in, nor are the
+ *   global names the function uses;
+ * - every argument is a literal, or the body calls no function and every argument is a variable, or an expression
+ *   without side effects used at most once, so evaluating it in the body instead of before the call is the same;
+ * - the body has at most the given number of nodes.
+ * The program must be checked again after the pass, to bind the copies in the scope of the call.
+ */
+public class Inliner {
+    /**
+     * Maximum number of nodes of the body of a function expanded.
+     */
+    private final int budget;
+    /**
+     * Global functions that can be expanded, by name.
+     */
+    private final HashMap<String, Candidate> candidates = new HashMap<>();
+    /**
+     * Names declared in the global function being visited, empty in the body of the program.
+     */
+    private HashSet<String> declared = new HashSet<>();
+    private int inlined = 0;
+
+    /**
+     * Function that can be expanded.
+     *
+     * @param function Declaration.
+     * @param names Free names of the body, parameters included.
+     */
+    private record Candidate(FunDecNode function, FreeNames names) {
+    }
+
+    private Inliner(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Expand the calls to small functions of a program.
+     *
+     * @param program Root of the program, checked without errors.
+     * @param budget Maximum number of nodes of the body of a function expanded.
+     * @return Number of calls expanded.
+     */
+    public static int inline(Node program, int budget) {
+        if (!(program instanceof ProgComplexNode))
+            return 0;
+
+        Inliner inliner = new Inliner(budget);
+
+        for (Node declaration : ((ProgComplexNode) program).getDeclarationList()) {
+            if (declaration instanceof FunDecNode function) {
+                inliner.declared = declaredNames(function);
+                function.inlineCalls(inliner::expand);
+                inliner.addCandidate(function);
+            }
+        }
+
+        inliner.declared = new HashSet<>();
+        program.inlineCalls(inliner::expand);
+
+        return inliner.inlined;
+    }
+
+    /**
+     * Collect the names declared in a function, in any of its scopes.
+     */
+    private static HashSet<String> declaredNames(FunDecNode function) {
+        HashSet<String> names = new HashSet<>();
+        ArrayDeque<Node> nodes = new ArrayDeque<>(function.getChildren());
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+
+            if (node instanceof ParamNode param)
+                names.add(param.getId());
+            else if (node instanceof VarDeclarationNode variable)
+                names.add(variable.getId());
+            else if (node instanceof FunDecNode nested)
+                names.add(nested.getId());
+
+            for (Node child : node.getChildren())
+                nodes.push(child);
+        }
+
+        return names;
+    }
+
+    /**
+     * Add a function to the candidates if its body is a small expression that does not call the function.
+     *
+     * @param function Global function, already expanded.
+     */
+    private void addCandidate(FunDecNode function) {
+        BodyNode body = function.getBody();
+
+        if (!body.getDeclarationList().isEmpty() || !body.getStatementList().isEmpty() || body.getExp() == null ||
+                Node.count(body.getExp()) > budget)
+            return;
+
+        FreeNames names = new FreeNames();
+        body.getExp().freeNames(names);
+
+        if (!names.getCalled().contains(function.getId()))
+            candidates.put(function.getId(), new Candidate(function, names));
+    }
+
+    /**
+     * Expand a call, if possible.
+     *
+     * @param call Call, its arguments already expanded.
+     * @return Copy of the body of the function called, the call itself if it is not expanded.
+     */
+    private Node expand(FunCallNode call) {
+        Candidate candidate = candidates.get(call.getId());
+
+        // Calls as statements discard the value, there is nothing to expand them to
+        if (call instanceof FunStmNode || candidate == null || declared.contains(call.getId()))
+            return call;
+
+        FunDecNode function = candidate.function();
+        FreeNames names = candidate.names();
+        HashSet<String> parameters = new HashSet<>();
+
+        for (ParamNode param : function.getParamList())
+            parameters.add(param.getId());
+
+        // Global names used by the body must be visible at the call
+        for (String name : names.getRead())
+            if (!parameters.contains(name) && declared.contains(name))
+                return call;
+
+        for (String name : names.getCalled())
+            if (declared.contains(name))
+                return call;
+
+        boolean calls = !names.getCalled().isEmpty();
+        HashMap<String, Node> arguments = new HashMap<>();
+
+        for (int i = 0; i < function.getParamList().size(); i++) {
+            String param = function.getParamList().get(i).getId();
+            Node argument = call.getArgumentList().get(i);
+
+            boolean literal = argument instanceof IntNode || argument instanceof BoolNode;
+            boolean variable = argument instanceof IdNode;
+            boolean pure = Node.isPure(argument) && names.getUses(param) <= 1;
+
+            if (!literal && (calls || !(variable || pure)))
+                return call;
+
+            arguments.put(param, argument);
+        }
+
+        Node copy = function.getBody().getExp().copy(arguments);
+
+        if (copy == null)
+            return call;
+
+        inlined++;
+
+        return copy;
+    }
+}
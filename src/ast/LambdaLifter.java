@@ -0,0 +1,302 @@
+package ast;
+
+import ast.nodes.BodyNode;
+import ast.nodes.FunDecNode;
+import ast.nodes.Node;
+import ast.nodes.ParamNode;
+import ast.nodes.ProgComplexNode;
+import ast.nodes.VarDeclarationNode;
+import ast.types.Type;
+import utils.FreeNames;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Lambda lifting of a checked program: nested functions are moved to the global scope, before the global function
+ * they are declared in, so that their body only accesses their own frame and the global one and they are called
+ * without following the static chain. The variables of the enclosing functions a nested function reads become
+ * extra parameters, passed by its calls.
+ * A function is lifted only when its meaning does not change:
+ * - it does not assign the variables it captures, so passing them by value is exact;
+ * - it is only called by the body it is declared in and by itself, where the captured variables are in scope;
+ * - it does not call other nested functions nor the global function it is declared in;
+ * - no global declaration has its name;
+ * - it is worth it: every use of a captured variable saves the hops from its body to the variable scope and every
+ *   use of a global name the hops to the global scope, while every call from the enclosing body pushes the
+ *   captured variables and follows the static chain to the global scope, unless the lifted function only uses
+ *   its own names.
+ * The program must be checked again after the pass, to bind the new parameters and arguments.
+ */
+public class LambdaLifter {
+    /**
+     * Global declarations of the program, lifted functions are inserted in place.
+     */
+    private final ArrayList<Node> globals;
+    /**
+     * Names declared in the global scope.
+     */
+    private final HashSet<String> globalNames = new HashSet<>();
+    /**
+     * Scopes enclosing the function visited, each mapping the names declared so far to their declaration.
+     */
+    private final ArrayList<HashMap<String, Node>> scopes = new ArrayList<>();
+    /**
+     * Variables of the enclosing functions read by the nested function checked last, and their types.
+     */
+    private final ArrayList<String> captured = new ArrayList<>();
+    private final ArrayList<Type> capturedTypes = new ArrayList<>();
+    /**
+     * Global function being visited and its position.
+     */
+    private FunDecNode global;
+    private int globalIndex;
+    private int lifted = 0;
+
+    /**
+     * Declaration a name is bound to.
+     *
+     * @param scope Index of the scope, 0 for the global one.
+     * @param declaration Declaring node.
+     */
+    private record Binding(int scope, Node declaration) {
+    }
+
+    private LambdaLifter(ArrayList<Node> globals) {
+        this.globals = globals;
+
+        for (Node declaration : globals)
+            globalNames.add(name(declaration));
+    }
+
+    /**
+     * Lift the nested functions of a program.
+     *
+     * @param program Root of the program, checked without errors.
+     * @return Number of functions lifted.
+     */
+    public static int lift(Node program) {
+        if (!(program instanceof ProgComplexNode))
+            return 0;
+
+        LambdaLifter lifter = new LambdaLifter(((ProgComplexNode) program).getDeclarationList());
+        lifter.liftAll();
+
+        return lifter.lifted;
+    }
+
+    private static String name(Node declaration) {
+        if (declaration instanceof FunDecNode)
+            return ((FunDecNode) declaration).getId();
+        else if (declaration instanceof VarDeclarationNode)
+            return ((VarDeclarationNode) declaration).getId();
+        else
+            return ((ParamNode) declaration).getId();
+    }
+
+    private void liftAll() {
+        HashMap<String, Node> globalScope = new HashMap<>();
+        scopes.add(globalScope);
+
+        int i = 0;
+
+        while (i < globals.size()) {
+            Node declaration = globals.get(i);
+            globalScope.put(name(declaration), declaration);
+
+            if (declaration instanceof FunDecNode) {
+                int size = globals.size();
+                global = (FunDecNode) declaration;
+                globalIndex = i;
+                visit(global);
+
+                // Functions lifted are inserted before the global function: visit them first
+                if (globals.size() > size) {
+                    globalScope.remove(name(declaration));
+                    continue;
+                }
+            }
+
+            i++;
+        }
+    }
+
+    /**
+     * Lift the functions nested in a function, or visit them if they cannot be lifted.
+     *
+     * @param function Function visited, its enclosing scopes are open.
+     */
+    private void visit(FunDecNode function) {
+        HashMap<String, Node> scope = new HashMap<>();
+        scopes.add(scope);
+
+        for (ParamNode param : function.getParamList())
+            scope.put(param.getId(), param);
+
+        ArrayList<Node> declarations = function.getBody().getDeclarationList();
+
+        for (int i = 0; i < declarations.size(); i++) {
+            Node declaration = declarations.get(i);
+            scope.put(name(declaration), declaration);
+
+            if (declaration instanceof FunDecNode nested) {
+                if (canLift(nested, function.getBody(), i)) {
+                    declarations.remove(i--);
+                    scope.remove(nested.getId());
+                    lift(nested, function.getBody());
+                } else
+                    visit(nested);
+            }
+        }
+
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * Find the declaration a name is bound to in the enclosing scopes.
+     *
+     * @param id Identifier.
+     * @return Binding of the name, null if the name is not declared.
+     */
+    private Binding resolve(String id) {
+        for (int i = scopes.size() - 1; i >= 0; i--)
+            if (scopes.get(i).containsKey(id))
+                return new Binding(i, scopes.get(i).get(id));
+
+        return null;
+    }
+
+    /**
+     * Check if a nested function can be lifted, collecting the variables it captures.
+     *
+     * @param function Nested function.
+     * @param body Body the function is declared in.
+     * @param index Position of the function in the declarations of the body.
+     * @return true if the function can be lifted, false otherwise.
+     */
+    private boolean canLift(FunDecNode function, BodyNode body, int index) {
+        String id = function.getId();
+        captured.clear();
+        capturedTypes.clear();
+
+        if (globalNames.contains(id))
+            return false;
+
+        FreeNames names = new FreeNames();
+        function.freeNames(names);
+
+        // Level of the body the function is declared in, hops saved and instructions added by every call
+        int level = scopes.size() - 1;
+        int saved = 0;
+        int cost = 0;
+        boolean closed = true;
+
+        // Calls only to global functions declared before the enclosing one
+        for (String called : names.getCalled()) {
+            Binding binding = resolve(called);
+
+            if (binding == null || binding.scope() > 0 || binding.declaration() == global)
+                return false;
+
+            saved += names.getUses(called) * level;
+            closed = false;
+        }
+
+        LinkedHashSet<String> variables = new LinkedHashSet<>(names.getRead());
+        variables.addAll(names.getAssigned());
+
+        for (String variable : variables) {
+            Binding binding = resolve(variable);
+
+            if (binding == null)
+                return false;
+
+            // Global variables are accessed as they are
+            if (binding.scope() == 0) {
+                saved += names.getUses(variable) * level;
+                closed = false;
+                continue;
+            }
+
+            if (names.getAssigned().contains(variable) || binding.declaration() instanceof FunDecNode)
+                return false;
+
+            // Argument pushed: move, static chain hops, subi, store and pushr
+            saved += names.getUses(variable) * (level + 1 - binding.scope());
+            cost += 4 + level - binding.scope();
+
+            captured.add(variable);
+            capturedTypes.add(binding.declaration() instanceof ParamNode param ? param.getType() :
+                    ((VarDeclarationNode) binding.declaration()).getType());
+        }
+
+        // The new parameters must not clash with the names the function declares
+        HashSet<String> declared = new HashSet<>();
+
+        for (ParamNode param : function.getParamList())
+            declared.add(param.getId());
+
+        for (Node declaration : function.getBody().getDeclarationList())
+            declared.add(name(declaration));
+
+        if (declared.contains(id) || captured.stream().anyMatch(declared::contains))
+            return false;
+
+        // Access link of the calls from the enclosing body: one pushr if closed, else walked to the global scope
+        cost += closed ? -1 : level;
+
+        if (saved <= cost)
+            return false;
+
+        // Functions nested in it must not call it, as their calls are not rewritten
+        if (calls(function.getBody().getDeclarationList(), 0, id))
+            return false;
+
+        // Later declarations of the body must not call it nor hide the captured variables from its calls
+        ArrayList<Node> siblings = body.getDeclarationList();
+
+        for (int i = index + 1; i < siblings.size(); i++)
+            if (captured.contains(name(siblings.get(i))))
+                return false;
+
+        return !calls(siblings, index + 1, id);
+    }
+
+    /**
+     * Check if the functions in a list of declarations call a function.
+     */
+    private static boolean calls(ArrayList<Node> declarations, int from, String id) {
+        for (int i = from; i < declarations.size(); i++) {
+            if (declarations.get(i) instanceof FunDecNode) {
+                FreeNames names = new FreeNames();
+                declarations.get(i).freeNames(names);
+
+                if (names.getCalled().contains(id))
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Move a nested function to the global scope, turning the variables it captures into parameters.
+     *
+     * @param function Nested function, already removed from its body.
+     * @param body Body the function was declared in.
+     */
+    private void lift(FunDecNode function, BodyNode body) {
+        for (int i = 0; i < captured.size(); i++)
+            function.getParamList().add(new ParamNode(captured.get(i), capturedTypes.get(i)));
+
+        ArrayList<String> arguments = new ArrayList<>(captured);
+        body.addCallArguments(function.getId(), arguments);
+        function.getBody().addCallArguments(function.getId(), arguments);
+
+        globals.add(globalIndex++, function);
+        globalNames.add(function.getId());
+        lifted++;
+    }
+}
@@ -0,0 +1,131 @@
+package ast;
+
+import ast.nodes.FunCallNode;
+import ast.nodes.FunDecNode;
+import ast.nodes.Node;
+import ast.nodes.ParamNode;
+import ast.types.VoidType;
+import utils.FreeNames;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Memoization of pure recursive functions, run on a checked program. A function is pure when its result only
+ * depends on its arguments and calling it has no effect:
+ * - it reads and assigns no variable declared outside it, nor do the functions nested in it;
+ * - it does not assign its parameters, read back from the frame to store the result;
+ * - the functions declared outside it that it calls are pure.
+ * The effects of the callees are found as a greatest fixed point over the call graph, so that recursive
+ * functions can be pure. The pure functions that return a value and call themselves from more than one place are
+ * marked, so that their calls go through the memo table of the VM: a function calling itself once, as a loop does,
+ * never repeats a call within a run and would only fill the table.
+ */
+public class Memoizer {
+    /**
+     * Effects of a function, before looking at its callees.
+     *
+     * @param function Declaration.
+     * @param callees Labels of the functions declared outside it that it calls.
+     * @param recursiveCalls Number of calls to itself.
+     */
+    private record Effects(FunDecNode function, HashSet<String> callees, int recursiveCalls) {
+    }
+
+    private Memoizer() {
+    }
+
+    /**
+     * Mark the pure recursive functions of a program.
+     *
+     * @param program Root of the program, checked without errors.
+     * @return Number of functions marked.
+     */
+    public static int memoize(Node program) {
+        HashMap<String, Effects> pure = new HashMap<>();
+        ArrayDeque<Node> nodes = new ArrayDeque<>();
+        nodes.push(program);
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+
+            if (node instanceof FunDecNode function && hasNoEffects(function))
+                pure.put(function.getLabel(), effects(function));
+
+            for (Node child : node.getChildren())
+                nodes.push(child);
+        }
+
+        // A function calling an impure one is impure, until nothing changes
+        boolean changed = true;
+
+        while (changed)
+            changed = pure.values().removeIf(effects -> !pure.keySet().containsAll(effects.callees()));
+
+        ArrayList<FunDecNode> memoized = new ArrayList<>();
+
+        for (Effects effects : pure.values())
+            if (effects.recursiveCalls() > 1 && !(effects.function().getType() instanceof VoidType))
+                memoized.add(effects.function());
+
+        // Table indexes in label order, so that the generated code does not depend on hashing
+        memoized.sort((a, b) -> a.getLabel().compareTo(b.getLabel()));
+
+        for (int i = 0; i < memoized.size(); i++)
+            memoized.get(i).markMemoized(i);
+
+        return memoized.size();
+    }
+
+    /**
+     * Check the effects of a function that do not depend on its callees.
+     */
+    private static boolean hasNoEffects(FunDecNode function) {
+        FreeNames names = new FreeNames();
+        function.freeNames(names);
+
+        if (!names.getRead().isEmpty() || !names.getAssigned().isEmpty())
+            return false;
+
+        // Parameters are free in the body
+        FreeNames body = new FreeNames();
+        function.getBody().freeNames(body);
+
+        for (ParamNode param : function.getParamList())
+            if (body.getAssigned().contains(param.getId()))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Collect the calls of a function, nested functions included.
+     */
+    private static Effects effects(FunDecNode function) {
+        HashSet<String> declared = new HashSet<>();
+        HashSet<String> callees = new HashSet<>();
+        int recursiveCalls = 0;
+        ArrayDeque<Node> nodes = new ArrayDeque<>();
+        nodes.push(function);
+
+        while (!nodes.isEmpty()) {
+            Node node = nodes.pop();
+
+            if (node instanceof FunDecNode nested)
+                declared.add(nested.getLabel());
+            else if (node instanceof FunCallNode call && call.getLabel().equals(function.getLabel()))
+                recursiveCalls++;
+            else if (node instanceof FunCallNode call)
+                callees.add(call.getLabel());
+
+            for (Node child : node.getChildren())
+                nodes.push(child);
+        }
+
+        callees.removeAll(declared);
+
+        return new Effects(function, callees, recursiveCalls);
+    }
+}
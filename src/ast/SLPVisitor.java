@@ -109,28 +109,12 @@ public class SLPVisitor extends SimpLanPlusBaseVisitor<Node> {
 
     @Override
     public Node visitRealtionalExp(SimpLanPlusParser.RealtionalExpContext ctx) {
-        if (ctx.gr != null)
-            return new GreaterNode(this.visit(ctx.left), this.visit(ctx.right));
-        else if (ctx.min != null)
-            return new MinorNode(this.visit(ctx.left), this.visit(ctx.right));
-        else if (ctx.greq != null)
-            return new GreatEqualNode(this.visit(ctx.left), this.visit(ctx.right));
-        else if (ctx.mineq != null)
-            return new MinEqualNode(this.visit(ctx.left), this.visit(ctx.right));
-        else
-            return new ComparisonNode(this.visit(ctx.left), this.visit(ctx.right));
+        return binaryChain(ctx);
     }
 
     @Override
     public Node visitArithmeticExp(SimpLanPlusParser.ArithmeticExpContext ctx) {
-        if (ctx.plus != null)
-            return new PlusNode(this.visit(ctx.left), this.visit(ctx.right));
-        else if (ctx.minus != null)
-            return new MinusNode(this.visit(ctx.left), this.visit(ctx.right));
-        else if (ctx.mul != null)
-            return new MultiplicationNode(this.visit(ctx.left), this.visit(ctx.right));
-        else
-            return new DivisionNode(this.visit(ctx.left), this.visit(ctx.right));
+        return binaryChain(ctx);
     }
 
     @Override
@@ -156,8 +140,7 @@ public class SLPVisitor extends SimpLanPlusBaseVisitor<Node> {
 
     @Override
     public Node visitLogicalExp(SimpLanPlusParser.LogicalExpContext ctx) {
-        return ctx.and != null ? new AndNode(this.visit(ctx.left), this.visit(ctx.right)) :
-                new OrNode(this.visit(ctx.left), this.visit(ctx.right));
+        return binaryChain(ctx);
     }
 
     @Override
@@ -194,4 +177,82 @@ public class SLPVisitor extends SimpLanPlusBaseVisitor<Node> {
 
         return new IfBodyStmNode(statementList);
     }
+
+    /**
+     * Operators are left-associative, so a chain of binary operations nests on the left operand: the chain is walked
+     * down with a loop and its nodes are built bottom up, visiting only the right operands recursively.
+     *
+     * @param ctx Binary operation at the top of the chain.
+     * @return Node of the operation.
+     */
+    private Node binaryChain(SimpLanPlusParser.ExpContext ctx) {
+        ArrayList<SimpLanPlusParser.ExpContext> chain = new ArrayList<>();
+        SimpLanPlusParser.ExpContext exp = ctx;
+
+        while (leftOperand(exp) != null) {
+            chain.add(exp);
+            exp = leftOperand(exp);
+        }
+
+        Node node = this.visit(exp);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            node = binaryOperation(chain.get(i), node);
+
+        return node;
+    }
+
+    /**
+     * @return Left operand of a binary operation, null if the expression is not one.
+     */
+    private static SimpLanPlusParser.ExpContext leftOperand(SimpLanPlusParser.ExpContext ctx) {
+        if (ctx instanceof SimpLanPlusParser.ArithmeticExpContext arithmetic)
+            return arithmetic.left;
+        else if (ctx instanceof SimpLanPlusParser.RealtionalExpContext relational)
+            return relational.left;
+        else if (ctx instanceof SimpLanPlusParser.LogicalExpContext logical)
+            return logical.left;
+
+        return null;
+    }
+
+    /**
+     * Build the node of a binary operation, visiting its right operand.
+     *
+     * @param ctx Binary operation.
+     * @param left Node of the left operand.
+     * @return Node of the operation.
+     */
+    private Node binaryOperation(SimpLanPlusParser.ExpContext ctx, Node left) {
+        if (ctx instanceof SimpLanPlusParser.ArithmeticExpContext arithmetic) {
+            Node right = this.visit(arithmetic.right);
+
+            if (arithmetic.plus != null)
+                return new PlusNode(left, right);
+            else if (arithmetic.minus != null)
+                return new MinusNode(left, right);
+            else if (arithmetic.mul != null)
+                return new MultiplicationNode(left, right);
+            else
+                return new DivisionNode(left, right);
+        } else if (ctx instanceof SimpLanPlusParser.RealtionalExpContext relational) {
+            Node right = this.visit(relational.right);
+
+            if (relational.gr != null)
+                return new GreaterNode(left, right);
+            else if (relational.min != null)
+                return new MinorNode(left, right);
+            else if (relational.greq != null)
+                return new GreatEqualNode(left, right);
+            else if (relational.mineq != null)
+                return new MinEqualNode(left, right);
+            else
+                return new ComparisonNode(left, right);
+        } else {
+            SimpLanPlusParser.LogicalExpContext logical = (SimpLanPlusParser.LogicalExpContext) ctx;
+            Node right = this.visit(logical.right);
+
+            return logical.and != null ? new AndNode(left, right) : new OrNode(left, right);
+        }
+    }
 }
@@ -1,144 +1,86 @@
 package ast;
 
-import java.util.HashMap;
+import java.util.Map;
 
-import evaluator.AssemblyClass;
+import evaluator.CodeBuilder;
 import evaluator.ExecuteVM;
 import parser.*;
 
 
 public class VMVisitor extends SVMBaseVisitor<Void> {
 
-    public AssemblyClass[] code = new AssemblyClass[ExecuteVM.CODESIZE];
-    private int i = 0;
-    private HashMap<String,Integer> labelAdd = new HashMap<String,Integer>();
-    // definisce a quale linea  di codice corrisponde una etichetta
-    private HashMap<Integer,String> labelRef = new HashMap<Integer,String>();
-    // definisce l'insieme di linee di codice che contengono una certa etichetta
+    // le istruzioni sono emesse direttamente nel formato compatto eseguito dalla VM, come nella generazione del codice
+    private final CodeBuilder code;
+    // immagine compatta del codice eseguita dalla VM, prodotta una sola volta a fine assemblaggio
+    public int[] image;
+
+    /**
+     * @return Address of every label of the assembled program.
+     */
+    public Map<String, Integer> getLabels() {
+        return code.getLabels();
+    }
+
+    public VMVisitor() {
+        this(ExecuteVM.CODESIZE);
+    }
+
+    public VMVisitor(int codeSize) {
+        code = new CodeBuilder(codeSize);
+    }
 
     public Void visitAssembly(SVMParser.AssemblyContext ctx) {
         visitChildren(ctx);
 
-        for (Integer refAdd : labelRef.keySet()) {
-            int tmp = refAdd ;
-            String s = labelRef.get(refAdd) ;
-            if (code[tmp] == null) {
-                code[tmp] =  new AssemblyClass(labelAdd.get(s), null, null, null);
-            } else {
-                code[tmp].setArg1(labelAdd.get(s).toString());
-            }
-        }
+        // i riferimenti alle etichette sono risolti una sola volta, a fine assemblaggio
+        image = code.build();
 
         return null;
     }
 
     public Void visitInstruction(SVMParser.InstructionContext ctx) {
         switch (ctx.getStart().getType()) {
-            case SVMLexer.LOAD -> {
-                code[i] = new AssemblyClass(SVMParser.LOAD, ctx.REG(0).toString(), ctx.NUMBER().toString(), ctx.REG(1).toString());
-                i = i + 1;
-            }
-            case SVMLexer.STORE -> {
-                code[i] = new AssemblyClass(SVMParser.STORE, ctx.REG(0).toString(), ctx.NUMBER().toString(), ctx.REG(1).toString());
-                i = i + 1;
-            }
-            case SVMLexer.STOREI -> {
-                code[i] = new AssemblyClass(SVMParser.STOREI, ctx.REG(0).toString(), ctx.NUMBER().toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.MOVE -> {
-                code[i] = new AssemblyClass(SVMParser.MOVE, ctx.REG(0).toString(), ctx.REG(1).toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.ADD -> {
-                code[i] = new AssemblyClass(SVMParser.ADD, ctx.REG(0).toString(), ctx.REG(1).toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.ADDI -> {
-                code[i] = new AssemblyClass(SVMParser.ADDI, ctx.REG(0).toString(), ctx.NUMBER().toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.SUB -> {
-                code[i] = new AssemblyClass(SVMParser.SUB, ctx.REG(0).toString(), ctx.REG(1).toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.SUBI -> {
-                code[i] = new AssemblyClass(SVMParser.SUBI, ctx.REG(0).toString(), ctx.NUMBER().toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.MUL -> {
-                code[i] = new AssemblyClass(SVMParser.MUL, ctx.REG(0).toString(), ctx.REG(1).toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.MULI -> {
-                code[i] = new AssemblyClass(SVMParser.MULI, ctx.REG(0).toString(), ctx.NUMBER().toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.DIV -> {
-                code[i] = new AssemblyClass(SVMParser.DIV, ctx.REG(0).toString(), ctx.REG(1).toString(), null);
-                i = i + 1;
-            }
-            case SVMLexer.DIVI -> {
-                code[i] = new AssemblyClass(SVMParser.DIVI, ctx.REG(0).toString(), ctx.NUMBER().toString(), null);
-                i = i + 1;
-            }
+            case SVMLexer.LOAD -> code.load(reg(ctx, 0), number(ctx), reg(ctx, 1));
+            case SVMLexer.STORE -> code.store(reg(ctx, 0), number(ctx), reg(ctx, 1));
+            case SVMLexer.STOREI -> code.storei(reg(ctx, 0), number(ctx));
+            case SVMLexer.MOVE -> code.move(reg(ctx, 0), reg(ctx, 1));
+            case SVMLexer.ADD -> code.add(reg(ctx, 0), reg(ctx, 1));
+            case SVMLexer.ADDI -> code.addi(reg(ctx, 0), number(ctx));
+            case SVMLexer.SUB -> code.sub(reg(ctx, 0), reg(ctx, 1));
+            case SVMLexer.SUBI -> code.subi(reg(ctx, 0), number(ctx));
+            case SVMLexer.MUL -> code.mul(reg(ctx, 0), reg(ctx, 1));
+            case SVMLexer.MULI -> code.muli(reg(ctx, 0), number(ctx));
+            case SVMLexer.DIV -> code.div(reg(ctx, 0), reg(ctx, 1));
+            case SVMLexer.DIVI -> code.divi(reg(ctx, 0), number(ctx));
             case SVMLexer.PUSH -> {
-                if (ctx.n != null) {
-                    code[i] = new AssemblyClass(SVMParser.PUSH, ctx.n.getText(), null, null);
-                } else {
-                    code[i] = new AssemblyClass(SVMParser.PUSH, ctx.l.getText(), null, null);
-                    labelRef.put(i, ctx.l.getText());
-                }
-                i = i + 1;
-            }
-            case SVMLexer.PUSHR -> {
-                code[i] = new AssemblyClass(SVMParser.PUSHR, ctx.REG(0).toString(), null, null);
-                i = i + 1;
-            }
-            case SVMLexer.POP -> {
-                code[i] = new AssemblyClass(SVMParser.POP, null, null, null);
-                i = i + 1;
-            }
-            case SVMLexer.POPR -> {
-                code[i] = new AssemblyClass(SVMParser.POPR, ctx.REG(0).toString(), null, null);
-                i = i + 1;
-            }
-            case SVMLexer.LABEL -> labelAdd.put(ctx.l.getText(), i);
-            case SVMLexer.BRANCH -> {
-                code[i] = new AssemblyClass(SVMParser.BRANCH, ctx.LABEL().toString(), null, null);
-                i = i + 1;
-                labelRef.put(i, (ctx.LABEL() != null ? ctx.LABEL().toString() : null));
-                i = i + 1;
-            }
-            case SVMLexer.BRANCHEQ -> {
-                code[i] = new AssemblyClass(SVMParser.BRANCHEQ, ctx.REG(0).toString(), ctx.REG(1).toString(), ctx.LABEL().toString());
-                i = i + 1;
-                labelRef.put(i, (ctx.LABEL() != null ? ctx.LABEL().toString() : null));
-                i = i + 1;
-            }
-            case SVMLexer.BRANCHLESSEQ -> {
-                code[i] = new AssemblyClass(SVMParser.BRANCHLESSEQ, ctx.REG(0).toString(), ctx.REG(1).toString(), ctx.LABEL().toString());
-                i = i + 1;
-                labelRef.put(i, (ctx.LABEL() != null ? ctx.LABEL().toString() : null));
-                i = i + 1;
-            }
-            case SVMLexer.JUMPSUB -> {
-                code[i] = new AssemblyClass(SVMParser.JUMPSUB, ctx.LABEL().toString(), null, null);
-                labelRef.put(i, ctx.LABEL().toString());
-                i = i + 1;
-            }
-            case SVMLexer.RETURNSUB -> {
-                code[i] = new AssemblyClass(SVMParser.RETURNSUB, ctx.REG(0).toString(), null, null);
-                i = i + 1;
-            }
-            case SVMLexer.HALT -> {
-                code[i] = new AssemblyClass(SVMParser.HALT, null, null, null);
-                i = i + 1;
-            }
+                if (ctx.n != null)
+                    code.push(Integer.parseInt(ctx.n.getText()));
+                else
+                    code.push(ctx.l.getText());
+            }
+            case SVMLexer.PUSHR -> code.pushr(reg(ctx, 0));
+            case SVMLexer.POP -> code.pop();
+            case SVMLexer.POPR -> code.popr(reg(ctx, 0));
+            case SVMLexer.LABEL -> code.label(ctx.l.getText());
+            // il salto porta con se' l'indirizzo di destinazione, risolto a fine assemblaggio
+            case SVMLexer.BRANCH -> code.b(ctx.LABEL().getText());
+            case SVMLexer.BRANCHEQ -> code.beq(reg(ctx, 0), reg(ctx, 1), ctx.LABEL().getText());
+            case SVMLexer.BRANCHLESSEQ -> code.bleq(reg(ctx, 0), reg(ctx, 1), ctx.LABEL().getText());
+            case SVMLexer.JUMPSUB -> code.jsub(ctx.LABEL().getText());
+            case SVMLexer.RETURNSUB -> code.rsub(reg(ctx, 0));
+            case SVMLexer.HALT -> code.halt();
             default -> {
             }    // Invalid instruction
         }
         return null;
     }
 
+    private static int reg(SVMParser.InstructionContext ctx, int index) {
+        return ExecuteVM.register(ctx.REG(index).getText());
+    }
+
+    private static int number(SVMParser.InstructionContext ctx) {
+        return Integer.parseInt(ctx.NUMBER().getText());
+    }
+
 }
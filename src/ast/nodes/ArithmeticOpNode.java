@@ -3,66 +3,75 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.IntType;
 import ast.types.Type;
-import utils.SemanticError;
-import utils.SymbolTable;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 
-import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Abstract node for arithmetic operators.
  */
-public abstract class ArithmeticOpNode implements Node {
-    protected String operation;
-    protected final Node left;
-    protected final Node right;
-
+public abstract class ArithmeticOpNode extends BinaryOpNode {
     public ArithmeticOpNode(Node left, Node right) {
-        this.left = left;
-        this.right = right;
+        super(left, right);
+    }
+
+    @Override
+    protected Type typeCheck(Type left, Supplier<Type> right) {
+        // Check if both left and right operands are integers
+        if (left instanceof IntType && right.get() instanceof IntType)
+            return new IntType();
+        else
+            return new ErrorType("Type Error: Non integers in " + operation.toLowerCase() + " operation.");
+    }
+
+    @Override
+    protected void operationGeneration(CompilationContext context, CodeBuilder code) {
+        code.pushr(A0);
+        right.codeGeneration(context, code);
+        code.popr(T1);
+        instruction(code);
+        code.popr(A0);
     }
 
     /**
-     * Function invoked to check for semantic errors.
+     * Append the instruction of the operator, which pushes the result, with the left operand in T1 and the right
+     * one in A0.
      *
-     * @param symbolTable  Symbol table to check in.
-     * @param nestingLevel Level of scope the node is in.
-     * @return List of semantic error.
+     * @param code Builder the instructions are appended to.
      */
+    protected abstract void instruction(CodeBuilder code);
+
     @Override
-    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
-        ArrayList<SemanticError> errors = new ArrayList<>();
-        // Check for left expression semantic errors
-        errors.addAll(left.checkSemantics(symbolTable, nestingLevel));
-        // Check for right expression semantic errors
-        errors.addAll(right.checkSemantics(symbolTable, nestingLevel));
+    protected Node foldOperands() {
+        if (left instanceof IntNode && right instanceof IntNode)
+            return foldConstants(((IntNode) left).getValue(), ((IntNode) right).getValue());
 
-        return errors;
+        return foldIdentity();
     }
 
     /**
-     * Determines the type of the token.
+     * Compute the operation on constant operands.
      *
-     * @return Type class of the corresponding node type.
+     * @param left Left operand.
+     * @param right Right operand.
+     * @return Literal result, this node if the operation fails at run time.
      */
-    @Override
-    public Type typeCheck() {
-        // Check if both left and right operands are integers
-        if (left.typeCheck() instanceof IntType && right.typeCheck() instanceof IntType)
-            return new IntType();
-        else
-            return new ErrorType("Type Error: Non integers in " + operation.toLowerCase() + " operation.");
-    }
+    protected abstract Node foldConstants(int left, int right);
 
     /**
-     * Bytecode generation for interpreter.
+     * Simplify the operation when an operand is its neutral element.
      *
-     * @return Code.
+     * @return The other operand, this node if no operand is neutral.
      */
-    @Override
-    public abstract String codeGeneration();
+    protected Node foldIdentity() {
+        return this;
+    }
 
-    @Override
-    public String toPrint(int tab) {
-        return "  ".repeat(tab) + operation + "\n" + left.toPrint(tab + 1) + right.toPrint(tab + 1);
+    protected static boolean isInt(Node node, int value) {
+        return node instanceof IntNode && ((IntNode) node).getValue() == value;
     }
 }
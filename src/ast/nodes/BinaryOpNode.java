@@ -0,0 +1,219 @@
+package ast.nodes;
+
+import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
+import utils.SemanticError;
+import utils.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Abstract node for binary operators. Operators are left-associative, so a chain of operations, like the thousands
+ * of additions of a generated source, nests on the left operand: every pass walks the chain of left operands with a
+ * loop and recurses only on the right ones, so that the length of a chain does not use up the Java stack.
+ * Subclasses define the operation through hooks called on each node of the chain, bottom up.
+ */
+public abstract class BinaryOpNode implements Node {
+    protected String operation;
+    protected Node left;
+    protected Node right;
+
+    public BinaryOpNode(Node left, Node right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Collect the chain of binary operators from this node down its left operands.
+     *
+     * @return The operators of the chain, this node first.
+     */
+    protected final ArrayList<BinaryOpNode> leftChain() {
+        ArrayList<BinaryOpNode> chain = new ArrayList<>();
+        Node node = this;
+
+        while (node instanceof BinaryOpNode binary) {
+            chain.add(binary);
+            node = binary.left;
+        }
+
+        return chain;
+    }
+
+    /**
+     * Function invoked to check for semantic errors.
+     *
+     * @param symbolTable  Symbol table to check in.
+     * @param nestingLevel Level of scope the node is in.
+     * @return List of semantic error.
+     */
+    @Override
+    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        // Check for the innermost left expression semantic errors, then for the right ones bottom up
+        ArrayList<SemanticError> errors = new ArrayList<>(chain.get(chain.size() - 1).left.checkSemantics(symbolTable,
+                nestingLevel));
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            errors.addAll(chain.get(i).right.checkSemantics(symbolTable, nestingLevel));
+
+        return errors;
+    }
+
+    /**
+     * Determines the type of the token.
+     *
+     * @return Type class of the corresponding node type.
+     */
+    @Override
+    public Type typeCheck() {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        Type type = chain.get(chain.size() - 1).left.typeCheck();
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            type = chain.get(i).typeCheck(type, chain.get(i).right::typeCheck);
+
+        return type;
+    }
+
+    /**
+     * Determines the type of the operation from the types of its operands.
+     *
+     * @param left Type of the left operand.
+     * @param right Type of the right operand, checked only when needed, as type errors are printed.
+     * @return Type class of the corresponding node type.
+     */
+    protected abstract Type typeCheck(Type left, Supplier<Type> right);
+
+    /**
+     * Bytecode generation for interpreter.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     */
+    @Override
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        chain.get(chain.size() - 1).left.codeGeneration(context, code);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chain.get(i).operationGeneration(context, code);
+    }
+
+    /**
+     * Bytecode generation of the right operand and of the operation: A0 <- left op right, with the left operand
+     * already in A0.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     */
+    protected abstract void operationGeneration(CompilationContext context, CodeBuilder code);
+
+    @Override
+    public void freeNames(FreeNames names) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        chain.get(chain.size() - 1).left.freeNames(names);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chain.get(i).right.freeNames(names);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        chain.get(chain.size() - 1).left.addCallArguments(function, arguments);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chain.get(i).right.addCallArguments(function, arguments);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        Node folded = chain.get(chain.size() - 1).left.fold(constants);
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            BinaryOpNode node = chain.get(i);
+            node.left = folded;
+            node.right = node.right.fold(constants);
+            folded = node.foldOperands();
+        }
+
+        return folded;
+    }
+
+    /**
+     * Fold the operation once its operands are folded.
+     *
+     * @return Node replacing this one, the node itself if it is not folded.
+     */
+    protected abstract Node foldOperands();
+
+    @Override
+    public List<Node> getChildren() {
+        return List.of(left, right);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        Node copy = chain.get(chain.size() - 1).left.copy(arguments);
+
+        for (int i = chain.size() - 1; i >= 0 && copy != null; i--) {
+            Node rightCopy = chain.get(i).right.copy(arguments);
+            copy = rightCopy != null ? chain.get(i).create(copy, rightCopy) : null;
+        }
+
+        return copy;
+    }
+
+    /**
+     * Create a node of the same operation.
+     *
+     * @param left Left operand.
+     * @param right Right operand.
+     * @return New node.
+     */
+    protected abstract Node create(Node left, Node right);
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        BinaryOpNode last = chain.get(chain.size() - 1);
+        last.left = last.left.inlineCalls(expansion);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            chain.get(i).right = chain.get(i).right.inlineCalls(expansion);
+
+        return this;
+    }
+
+    @Override
+    public String toPrint(int tab) {
+        ArrayList<BinaryOpNode> chain = leftChain();
+        StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < chain.size(); i++)
+            out.append("  ".repeat(tab + i)).append(chain.get(i).operation).append("\n");
+
+        out.append(chain.get(chain.size() - 1).left.toPrint(tab + chain.size()));
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            out.append(chain.get(i).operandSeparator()).append(chain.get(i).right.toPrint(tab + i + 1));
+
+        return out.toString();
+    }
+
+    /**
+     * @return Text printed between the operands of the node in the printout of the tree.
+     */
+    protected String operandSeparator() {
+        return "";
+    }
+}
@@ -3,10 +3,21 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.Type;
 import ast.types.VoidType;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.SP;
 
 /**
  * Node for function declaration's body.
@@ -14,7 +25,7 @@ import java.util.ArrayList;
 public class BodyNode implements Node {
     private final ArrayList<Node> declarationList;
     private final ArrayList<Node> statementList;
-    private final Node exp;
+    private Node exp;
 
     public BodyNode (ArrayList<Node> declarationList, ArrayList<Node> statementList, Node exp) {
         this.declarationList = declarationList;
@@ -22,6 +33,18 @@ public class BodyNode implements Node {
         this.exp = exp;
     }
 
+    public ArrayList<Node> getDeclarationList() {
+        return declarationList;
+    }
+
+    public ArrayList<Node> getStatementList() {
+        return statementList;
+    }
+
+    public Node getExp() {
+        return exp;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -74,23 +97,232 @@ public class BodyNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        StringBuilder decStmCode = new StringBuilder();
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        for (Node declaration : declarationList)
+            declaration.codeGeneration(context, code);
+
+        for (Node statement : statementList)
+            statement.codeGeneration(context, code);
 
+        if (exp != null)
+            exp.codeGeneration(context, code);
+
+        code.addi(SP, declarationList.size());
+    }
+
+    /**
+     * The tail of a body is its expression or, in a void body, its last statement.
+     *
+     * @param callerParameters Number of parameters of the function the node is the tail of.
+     */
+    @Override
+    public void markTailCalls(int callerParameters) {
+        if (exp != null)
+            exp.markTailCalls(callerParameters);
+        else if (!statementList.isEmpty())
+            statementList.get(statementList.size() - 1).markTailCalls(callerParameters);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
         for (Node declaration : declarationList)
-            decStmCode.append(declaration.codeGeneration());
+            declaration.freeNames(names);
+
+        for (Node statement : statementList)
+            statement.freeNames(names);
+
+        if (exp != null)
+            exp.freeNames(names);
+    }
 
+    /**
+     * Only the statements and the expression are visited, calls in nested functions are left as they are.
+     *
+     * @param function Identifier of the function.
+     * @param arguments Identifiers of the variables passed as extra arguments.
+     */
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
         for (Node statement : statementList)
-            decStmCode.append(statement.codeGeneration());
+            statement.addCallArguments(function, arguments);
+
+        if (exp != null)
+            exp.addCallArguments(function, arguments);
+    }
+
+    /**
+     * Fold the body of a function.
+     *
+     * @param parameters Identifiers of the parameters of the function.
+     */
+    public void fold(List<String> parameters) {
+        exp = fold(declarationList, statementList, exp, parameters);
+    }
+
+    /**
+     * Fold the declarations, the statements and the expression of a body in order. A variable declared in the body,
+     * or a parameter, assigned exactly once in the body, by one of its statements, and never by its nested functions, holds the
+     * same value after that statement: if it is a literal, it replaces the variable in the rest of the body.
+     *
+     * @param declarationList Declarations of the body, nested functions are folded in their own scope.
+     * @param statementList Statements of the body, replaced in place.
+     * @param exp Expression of the body, null if the body has none.
+     * @param parameters Identifiers of the parameters of the function.
+     * @return Folded expression, null if the body has none.
+     */
+    static Node fold(ArrayList<Node> declarationList, ArrayList<Node> statementList, Node exp,
+                     List<String> parameters) {
+        FreeNames assignments = new FreeNames();
+
+        for (Node statement : statementList)
+            statement.freeNames(assignments);
+
+        if (exp != null)
+            exp.freeNames(assignments);
+
+        HashSet<String> candidates = new HashSet<>(parameters);
+
+        for (Node declaration : declarationList)
+            if (declaration instanceof VarDeclarationNode)
+                candidates.add(((VarDeclarationNode) declaration).getId());
+
+        for (Node declaration : declarationList) {
+            if (declaration instanceof FunDecNode) {
+                FreeNames names = new FreeNames();
+                declaration.freeNames(names);
+                candidates.removeAll(names.getAssigned());
+            }
+
+            declaration.fold(Map.of());
+        }
+
+        HashMap<String, Node> constants = new HashMap<>();
+
+        for (int i = 0; i < statementList.size(); i++) {
+            Node statement = statementList.get(i).fold(constants);
+            statementList.set(i, statement);
+
+            if (statement instanceof VarAssNode) {
+                String id = ((VarAssNode) statement).getId();
+                Node value = ((VarAssNode) statement).getExp();
+
+                if (candidates.contains(id) && assignments.getAssignments(id) == 1 &&
+                        (value instanceof IntNode || value instanceof BoolNode))
+                    constants.put(id, value);
+            }
+        }
+
+        return exp != null ? exp.fold(constants) : null;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        List<Node> children = new ArrayList<>(declarationList);
+        children.addAll(statementList);
+
+        if (exp != null)
+            children.add(exp);
+
+        return children;
+    }
+
+    /**
+     * Remove the dead assignments of the body of a function.
+     *
+     * @param parameters Identifiers of the parameters of the function.
+     * @return Number of assignments removed.
+     */
+    public int removeDeadStores(List<String> parameters) {
+        return removeDeadStores(declarationList, statementList, exp, parameters);
+    }
+
+    /**
+     * Remove the assignments of a body whose value is never read. Only the variables declared in the body and the
+     * parameters are considered, unless a nested function reads them: the frame is discarded when the body ends, so
+     * a value not read by the rest of the body is lost. Nested functions are visited in their own scope.
+     *
+     * @param declarationList Declarations of the body.
+     * @param statementList Statements of the body, dead assignments are removed in place.
+     * @param exp Expression of the body, null if the body has none.
+     * @param parameters Identifiers of the parameters of the function.
+     * @return Number of assignments removed.
+     */
+    static int removeDeadStores(ArrayList<Node> declarationList, ArrayList<Node> statementList, Node exp,
+                                List<String> parameters) {
+        HashSet<String> candidates = new HashSet<>(parameters);
+        int removed = 0;
+
+        for (Node declaration : declarationList)
+            if (declaration instanceof VarDeclarationNode)
+                candidates.add(((VarDeclarationNode) declaration).getId());
+
+        for (Node declaration : declarationList) {
+            if (declaration instanceof FunDecNode) {
+                FreeNames names = new FreeNames();
+                declaration.freeNames(names);
+                candidates.removeAll(names.getRead());
+                removed += declaration.removeDeadStores(new HashSet<>(), Set.of());
+            }
+        }
+
+        HashSet<String> live = new HashSet<>();
+
+        if (exp != null)
+            removed += exp.removeDeadStores(live, candidates);
+
+        return removed + removeDeadStores(statementList, live, candidates);
+    }
+
+    /**
+     * Remove the dead assignments of a list of statements, from the last one. An assignment to a candidate not live
+     * after it is removed if its value has no side effects; in any case it kills the variable, that is live before
+     * it only if its value reads it.
+     *
+     * @param statementList Statements, dead assignments are removed in place.
+     * @param live Variables read after the statements, updated to the ones read before them.
+     * @param candidates Variables whose assignments can be removed.
+     * @return Number of assignments removed.
+     */
+    static int removeDeadStores(ArrayList<Node> statementList, Set<String> live, Set<String> candidates) {
+        int removed = 0;
+
+        for (int i = statementList.size() - 1; i >= 0; i--) {
+            Node statement = statementList.get(i);
+
+            if (statement instanceof VarAssNode && candidates.contains(((VarAssNode) statement).getId())) {
+                String id = ((VarAssNode) statement).getId();
+                Node value = ((VarAssNode) statement).getExp();
+
+                if (!live.contains(id) && Node.isPure(value)) {
+                    statementList.remove(i);
+                    removed++;
+                    continue;
+                }
+
+                live.remove(id);
+                value.removeDeadStores(live, candidates);
+            } else
+                removed += statement.removeDeadStores(live, candidates);
+        }
+
+        return removed;
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        for (Node declaration : declarationList)
+            declaration.inlineCalls(expansion);
+
+        statementList.replaceAll(statement -> statement.inlineCalls(expansion));
 
         if (exp != null)
-            decStmCode.append(exp.codeGeneration());
+            exp = exp.inlineCalls(expansion);
 
-        return decStmCode +
-                "addi SP " + declarationList.size() + " \n";
+        return this;
     }
 
     @Override
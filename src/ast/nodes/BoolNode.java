@@ -2,10 +2,15 @@ package ast.nodes;
 
 import ast.types.BoolType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Map;
+
+import static evaluator.ExecuteVM.A0;
 
 /**
  * Node for booleans values.
@@ -17,6 +22,10 @@ public class BoolNode implements Node {
         this.value = value;
     }
 
+    public boolean getValue() {
+        return value;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -42,11 +51,26 @@ public class BoolNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return "storei A0 " + (value ? 1 : 0) + "\n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        code.storei(A0, value ? 1 : 0);
+    }
+
+    @Override
+    public void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                    String labelFalse) {
+        String target = value ? labelTrue : labelFalse;
+
+        if (target != null)
+            code.b(target);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        return new BoolNode(value);
     }
 
     @Override
@@ -3,80 +3,78 @@ package ast.nodes;
 import ast.types.BoolType;
 import ast.types.ErrorType;
 import ast.types.Type;
-import utils.CodeGenSupport;
-import utils.SemanticError;
-import utils.SymbolTable;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 
-import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for relational operator "==".
  */
-public class ComparisonNode implements Node {
-    private final Node left;
-    private final Node right;
-
+public class ComparisonNode extends BinaryOpNode {
     public ComparisonNode(Node left, Node right) {
-        this.left = left;
-        this.right = right;
+        super(left, right);
+        operation = "==";
     }
 
-    /**
-     * Function invoked to check for semantic errors.
-     *
-     * @param symbolTable  Symbol table to check in.
-     * @param nestingLevel Level of scope the node is in.
-     * @return List of semantic error.
-     */
     @Override
-    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
-        ArrayList<SemanticError> errors = new ArrayList<>();
-        // Check for left expression semantic errors
-        errors.addAll(left.checkSemantics(symbolTable, nestingLevel));
-        // Check for right expression semantic errors
-        errors.addAll(right.checkSemantics(symbolTable, nestingLevel));
-
-        return errors;
-    }
-
-    /**
-     * Determines the type of the token.
-     *
-     * @return Type class of the corresponding node type.
-     */
-    @Override
-    public Type typeCheck() {
+    protected Type typeCheck(Type left, Supplier<Type> right) {
         // Check if both left and right operands have the same type
-        if (left.typeCheck().isEqual(right.typeCheck()))
+        if (left.isEqual(right.get()))
             return new BoolType();
         else
             return new ErrorType("Type Error: Different types in comparison operation.");
     }
 
+    @Override
+    protected void operationGeneration(CompilationContext context, CodeBuilder code) {
+        String labelTrue = context.newLabel();
+        String labelEnd = context.newLabel();
+
+        code.pushr(A0);
+        right.codeGeneration(context, code);
+        code.popr(T1)
+                .beq(A0, T1, labelTrue)
+                .storei(A0, 0)
+                .b(labelEnd)
+                .label(labelTrue)
+                .storei(A0, 1)
+                .label(labelEnd);
+    }
+
     /**
-     * Bytecode generation for interpreter.
+     * The equality is a single compare-and-branch to the targets.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param labelTrue Target if the expression is true, null to fall through.
+     * @param labelFalse Target if the expression is false, null to fall through.
      */
     @Override
-    public String codeGeneration() {
-        String labelTrue = CodeGenSupport.newLabel();
-        String labelEnd = CodeGenSupport.newLabel();
+    public void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                    String labelFalse) {
+        left.codeGeneration(context, code);
+        code.pushr(A0);
+        right.codeGeneration(context, code);
+        code.popr(T1);
+        Node.jump(context, code, label -> code.beq(A0, T1, label), true, labelTrue, labelFalse);
+    }
+
+    @Override
+    protected Node foldOperands() {
+        if (left instanceof IntNode && right instanceof IntNode)
+            return new BoolNode(((IntNode) left).getValue() == ((IntNode) right).getValue());
+        else if (left instanceof BoolNode && right instanceof BoolNode)
+            return new BoolNode(((BoolNode) left).getValue() == ((BoolNode) right).getValue());
 
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "beq A0 T1 " + labelTrue + "\n" +
-                "storei A0 0 \n" +
-                "b " + labelEnd + "\n" +
-                labelTrue + ": \n" +
-                "storei A0 1 \n" +
-                labelEnd + ": \n";
+        return this;
     }
 
     @Override
-    public String toPrint(int tab) {
-        return "  ".repeat(tab) + "==\n" +  left.toPrint(tab + 1) + right.toPrint(tab + 1);
+    protected Node create(Node left, Node right) {
+        return new ComparisonNode(left, right);
     }
 }
@@ -1,5 +1,10 @@
 package ast.nodes;
 
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
+
 /**
  * Node for arithmetic operator "/".
  */
@@ -9,18 +14,26 @@ public class DivisionNode extends ArithmeticOpNode {
         operation = "Division";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "div T1 A0 \n" +
-                "popr A0 \n";
+    protected void instruction(CodeBuilder code) {
+        code.div(T1, A0);
+    }
+
+
+    @Override
+    protected Node foldConstants(int left, int right) {
+        // Division by zero is left to fail at run time
+        return right != 0 ? new IntNode(left / right) : this;
+    }
+
+    @Override
+    protected Node foldIdentity() {
+        return isInt(right, 1) ? left : this;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new DivisionNode(left, right);
     }
 }
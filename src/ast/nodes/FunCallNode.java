@@ -3,11 +3,24 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.FunType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.STEntry;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.FP;
+import static evaluator.ExecuteVM.RA;
+import static evaluator.ExecuteVM.SP;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for function invocation as expression (evaluating its return value).
@@ -17,12 +30,29 @@ public class FunCallNode implements Node {
     private final ArrayList<Node> argumentList;
     private STEntry entry;
     private int nestingUsage;
+    // Number of parameters of the caller when the call is in its tail position, -1 otherwise
+    private int tailCallerParameters = -1;
 
     public FunCallNode (String id, ArrayList<Node> argumentList) {
         this.id = id;
         this.argumentList = argumentList;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public ArrayList<Node> getArgumentList() {
+        return argumentList;
+    }
+
+    /**
+     * @return Label of the function called, bound by the semantic check.
+     */
+    public String getLabel() {
+        return entry.getLabel();
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -89,25 +119,155 @@ public class FunCallNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        StringBuilder argumentsCode = new StringBuilder();
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        // The frame of the caller cannot be reused by a function declared in it, that reaches it by the access link
+        if (tailCallerParameters >= 0 && (nestingUsage > entry.getNesting() || entry.isClosed())) {
+            tailCallGeneration(context, code);
+            return;
+        }
+
+        code.pushr(FP)
+                .move(SP, FP)
+                .addi(FP, 1);
+        accessLinkGeneration(code);
+
+        for (int i = 0; i < argumentList.size(); i++) {
+            Node argument = argumentList.get(i);
+            argument.codeGeneration(context, code);
+            code.pushr(A0);
+
+            // A call in the argument returns with the access link of the frame being built: the next arguments read
+            // the variables from the frame of the caller, saved in the first cell
+            if (i < argumentList.size() - 1 && !isLeaf(argument))
+                code.store(AL, 0, FP)
+                        .subi(AL, 1);
+        }
 
+        code.move(FP, AL)
+                .subi(AL, 1)
+                .jsub(entry.getLabel());
+    }
+
+    /**
+     * @param node Expression.
+     * @return true if the expression is a literal or a variable, that calls no function, false otherwise.
+     */
+    private static boolean isLeaf(Node node) {
+        return node instanceof IntNode || node instanceof BoolNode || node instanceof IdNode;
+    }
+
+    /**
+     * Push the access link of the callee, the frame of the function it is declared in, found following the
+     * static chain. Functions that only use their own names never read it, so any value is pushed.
+     *
+     * @param code Builder the instructions are appended to.
+     */
+    private void accessLinkGeneration(CodeBuilder code) {
+        if (entry.isClosed()) {
+            code.pushr(AL);
+            return;
+        }
+
+        code.move(AL, T1);
+
+        for (int i = 0; i < nestingUsage - entry.getNesting(); i++)
+            code.store(T1, 0, T1);
+
+        code.pushr(T1);
+    }
+
+    /**
+     * Bytecode generation for a call in tail position: the access link and the arguments are evaluated on top
+     * of the stack as usual, then moved over the ones of the caller, whose frame is reused by the callee.
+     * The callee is entered with a jump and the return address of the caller, so it returns to the caller's
+     * caller and tail recursive functions run in constant stack space.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     */
+    private void tailCallGeneration(CompilationContext context, CodeBuilder code) {
+        int arguments = argumentList.size();
+
+        accessLinkGeneration(code);
+
+        for (Node argument : argumentList) {
+            argument.codeGeneration(context, code);
+            code.pushr(A0);
+        }
+
+        // Return address of the caller, saved after its parameters
+        code.store(RA, -(tailCallerParameters + 2), FP);
+
+        // Access link and arguments, from the highest address, as the frame is above the values moved
+        for (int i = 0; i <= arguments; i++)
+            code.store(T1, arguments + 1 - i, SP)
+                    .load(T1, -1 - i, FP);
+
+        code.move(FP, SP)
+                .subi(SP, arguments + 2)
+                .b(entry.getLabel());
+    }
+
+    @Override
+    public void markTailCalls(int callerParameters) {
+        tailCallerParameters = callerParameters;
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
         for (Node argument : argumentList)
-            argumentsCode.append(argument.codeGeneration()).append("pushr A0 \n");
-
-        return "pushr FP \n" +
-                "move SP FP \n" +
-                "addi FP 1 \n" +
-                "move AL T1 \n" +
-                "store T1 0(T1) \n".repeat(Math.max(0, nestingUsage - entry.getNesting())) +
-                "pushr T1 \n" +
-                argumentsCode +
-                "move FP AL \n" +
-                "subi AL 1 \n" +
-                "jsub " + entry.getLabel() + "\n";
+            argument.freeNames(names);
+
+        names.call(id);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        for (Node argument : argumentList)
+            argument.addCallArguments(function, arguments);
+
+        if (id.equals(function))
+            for (String argument : arguments)
+                argumentList.add(new IdNode(argument));
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        argumentList.replaceAll(argument -> argument.fold(constants));
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return new ArrayList<>(argumentList);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        ArrayList<Node> argumentsCopy = new ArrayList<>();
+
+        for (Node argument : argumentList) {
+            Node argumentCopy = argument.copy(arguments);
+
+            if (argumentCopy == null)
+                return null;
+
+            argumentsCopy.add(argumentCopy);
+        }
+
+        return new FunCallNode(id, argumentsCopy);
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        argumentList.replaceAll(argument -> argument.inlineCalls(expansion));
+
+        return expansion.apply(this);
     }
 
     @Override
@@ -3,11 +3,23 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.FunType;
 import ast.types.Type;
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
+import utils.STEntry;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.FP;
+import static evaluator.ExecuteVM.RA;
+import static evaluator.ExecuteVM.SP;
 
 /**
  * Node for function declaration.
@@ -19,6 +31,10 @@ public class FunDecNode  implements Node {
     private final BodyNode body;
     private FunType funType;
     private String label;
+    // Cleared when no call reaches the function, that is then not generated
+    private boolean called = true;
+    // Index of the function in the memo table, -1 if its calls are not memoized
+    private int memoIndex = -1;
 
     public FunDecNode (String id, Type type, ArrayList<ParamNode> paramList, BodyNode body) {
         this.id = id;
@@ -27,6 +43,34 @@ public class FunDecNode  implements Node {
         this.body = body;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public ArrayList<ParamNode> getParamList() {
+        return paramList;
+    }
+
+    public BodyNode getBody() {
+        return body;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void markUncalled() {
+        called = false;
+    }
+
+    public void markMemoized(int index) {
+        memoIndex = index;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -49,9 +93,17 @@ public class FunDecNode  implements Node {
                 inputType.add(param.typeCheck());
 
             funType = new FunType(inputType, type);
-            label = CodeGenSupport.newFunLabel();
+            label = symbolTable.getContext().newFunLabel(id);
             // Add new fun id to symbol table
-            symbolTable.add(id, funType, label);
+            STEntry entry = symbolTable.add(id, funType, label);
+
+            // A function that only uses its own names never reads its access link
+            FreeNames names = new FreeNames();
+            freeNames(names);
+
+            if (names.isEmpty())
+                entry.markClosed();
+
             // Create a new scope
             int funScopeLevel = symbolTable.newScope();
 
@@ -96,25 +148,103 @@ public class FunDecNode  implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        CodeGenSupport.addFunctionCode(
-                        label + ": \n" +
-                        "pushr RA \n" +
-                        body.codeGeneration() +
-                        "popr RA \n" +
-                        "addi SP " + paramList.size() + " \n" +
-                        "pop \n" +
-                        "store FP 0(FP) \n" +
-                        "move FP AL \n" +
-                        "subi AL 1 \n" +
-                        "pop \n" +
-                        "rsub RA \n"
-        );
-
-        return "push " + label + " \n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        // An uncalled function keeps its slot in the frame, so that the offsets of the other names do not change
+        if (!called) {
+            code.push(0);
+            return;
+        }
+
+        CodeBuilder function = new CodeBuilder();
+
+        body.markTailCalls(paramList.size());
+        function.label(label);
+
+        // The result of a memoized call is looked up on entry and stored on exit, before the frame is popped
+        if (memoIndex >= 0)
+            function.memo(memoIndex, paramList.size());
+
+        function.pushr(RA);
+        body.codeGeneration(context, function);
+
+        if (memoIndex >= 0)
+            function.memoPut(memoIndex, paramList.size());
+
+        function.popr(RA)
+                .addi(SP, paramList.size())
+                .pop()
+                .store(FP, 0, FP)
+                .move(FP, AL)
+                .subi(AL, 1)
+                .pop()
+                .rsub(RA);
+        context.addFunctionCode(function);
+
+        code.push(label);
+    }
+
+    /**
+     * The function name is declared before the body, that can call it recursively.
+     *
+     * @param names Free names found so far, with the scopes declared around the node.
+     */
+    @Override
+    public void freeNames(FreeNames names) {
+        names.declare(id);
+        names.newScope();
+
+        for (ParamNode param : paramList)
+            names.declare(param.getId());
+
+        body.freeNames(names);
+        names.exitScope();
+    }
+
+    /**
+     * Constants are propagated only inside the body they are assigned in.
+     *
+     * @param constants Literal values of the variables assigned exactly once, known where the node is evaluated.
+     * @return The node itself.
+     */
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        ArrayList<String> parameters = new ArrayList<>();
+
+        for (ParamNode param : paramList)
+            parameters.add(param.getId());
+
+        body.fold(parameters);
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        List<Node> children = new ArrayList<>(paramList);
+        children.add(body);
+
+        return children;
+    }
+
+    @Override
+    public int removeDeadStores(Set<String> live, Set<String> candidates) {
+        ArrayList<String> parameters = new ArrayList<>();
+
+        for (ParamNode param : paramList)
+            parameters.add(param.getId());
+
+        return body.removeDeadStores(parameters);
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        body.inlineCalls(expansion);
+
+        return this;
     }
 
     @Override
@@ -1,6 +1,9 @@
 package ast.nodes;
 
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for relational operator ">".
@@ -11,25 +14,26 @@ public class GreaterNode extends RelationalOpNode {
         operation = "Greater";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        String labelFalse = CodeGenSupport.newLabel();
-        String labelEnd = CodeGenSupport.newLabel();
-
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "bleq T1 A0 " + labelFalse + "\n" +
-                "storei A0 1 \n" +
-                "b " + labelEnd + "\n" +
-                labelFalse + ": \n" +
-                "storei A0 0 \n" +
-                labelEnd + ": \n";
+    protected void branch(CodeBuilder code, String label) {
+        // left > right does not hold when left <= right
+        code.bleq(T1, A0, label);
+    }
+
+    @Override
+    protected boolean branchesOnTrue() {
+        return false;
+    }
+
+
+    @Override
+    protected boolean compare(int left, int right) {
+        return left > right;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new GreaterNode(left, right);
     }
 }
@@ -3,11 +3,19 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.FunType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.STEntry;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Map;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for variable usage (as expression).
@@ -66,14 +74,33 @@ public class IdNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return "move AL T1 \n" +
-                "store T1 0(T1) \n".repeat(Math.max(0, nestingUsage - entry.getNesting())) +
-                "subi T1 " + entry.getOffset() + " \n" +
-                "store A0 0(T1) \n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        code.move(AL, T1);
+
+        for (int i = 0; i < nestingUsage - entry.getNesting(); i++)
+            code.store(T1, 0, T1);
+
+        code.subi(T1, entry.getOffset())
+                .store(A0, 0, T1);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        names.read(id);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        return constants.getOrDefault(id, this);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        return arguments.containsKey(id) ? arguments.get(id).copy(Map.of()) : new IdNode(id);
     }
 
     @Override
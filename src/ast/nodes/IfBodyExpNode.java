@@ -2,21 +2,36 @@ package ast.nodes;
 
 import ast.types.ErrorType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Node for if body with statements and expression.
  */
 public class IfBodyExpNode extends IfBodyStmNode {
-    private final Node exp;
+    private Node exp;
     public IfBodyExpNode(ArrayList<Node> statementList, Node exp) {
         super(statementList);
         this.exp = exp;
     }
 
+    public Node getExp() {
+        return exp;
+    }
+
+    public void setExp(Node exp) {
+        this.exp = exp;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -47,14 +62,78 @@ public class IfBodyExpNode extends IfBodyStmNode {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        String statementsCode = super.codeGeneration();
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        super.codeGeneration(context, code);
+        exp.codeGeneration(context, code);
+    }
+
+    @Override
+    public void markTailCalls(int callerParameters) {
+        exp.markTailCalls(callerParameters);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        super.freeNames(names);
+        exp.freeNames(names);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        super.addCallArguments(function, arguments);
+        exp.addCallArguments(function, arguments);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        super.fold(constants);
+        exp = exp.fold(constants);
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        List<Node> children = super.getChildren();
+        children.add(exp);
+
+        return children;
+    }
+
+    @Override
+    public int removeDeadStores(Set<String> live, Set<String> candidates) {
+        int removed = exp.removeDeadStores(live, candidates);
+
+        return removed + super.removeDeadStores(live, candidates);
+    }
+
+    /**
+     * Only branches without statements are copied, as the statements of an inlined function would assign the
+     * variables of the caller.
+     *
+     * @param arguments Expressions replacing the identifiers they are mapped to, copied at every use.
+     * @return Copy of the node, null if the node cannot be copied.
+     */
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        if (!getStatementList().isEmpty())
+            return null;
+
+        Node expCopy = exp.copy(arguments);
+
+        return expCopy != null ? new IfBodyExpNode(new ArrayList<>(), expCopy) : null;
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        super.inlineCalls(expansion);
+        exp = exp.inlineCalls(expansion);
 
-        return statementsCode +
-                exp.codeGeneration();
+        return this;
     }
 
     @Override
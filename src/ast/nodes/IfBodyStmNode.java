@@ -2,10 +2,17 @@ package ast.nodes;
 
 import ast.types.ErrorType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Node for if body with statements.
@@ -17,6 +24,10 @@ public class IfBodyStmNode implements Node {
         this.statementList = statementList;
     }
 
+    public ArrayList<Node> getStatementList() {
+        return statementList;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -53,16 +64,55 @@ public class IfBodyStmNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        StringBuilder statementsCode = new StringBuilder();
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        for (Node statement : statementList)
+            statement.codeGeneration(context, code);
+    }
 
+    @Override
+    public void markTailCalls(int callerParameters) {
+        if (!statementList.isEmpty())
+            statementList.get(statementList.size() - 1).markTailCalls(callerParameters);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        for (Node statement : statementList)
+            statement.freeNames(names);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
         for (Node statement : statementList)
-            statementsCode.append(statement.codeGeneration());
+            statement.addCallArguments(function, arguments);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        statementList.replaceAll(statement -> statement.fold(constants));
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return new ArrayList<>(statementList);
+    }
+
+    @Override
+    public int removeDeadStores(Set<String> live, Set<String> candidates) {
+        return BodyNode.removeDeadStores(statementList, live, candidates);
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        statementList.replaceAll(statement -> statement.inlineCalls(expansion));
 
-        return statementsCode.toString();
+        return this;
     }
 
     @Override
@@ -1,128 +1,81 @@
 package ast.nodes;
 
-import ast.types.BoolType;
 import ast.types.ErrorType;
 import ast.types.Type;
-import utils.CodeGenSupport;
-import utils.STEntry;
-import utils.SemanticError;
-import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Map;
 
 /**
  * Node for if block with statements and expression.
  */
-public class IfExpNode implements Node {
-    private final Node conditionExp;
-    private final IfBodyExpNode thenBranch;
-    private final IfBodyExpNode elseBranch;
-
+public class IfExpNode extends IfNode {
     public IfExpNode (Node conditionExp, IfBodyExpNode thenBranch, IfBodyExpNode elseBranch) {
-        this.conditionExp = conditionExp;
-        this.thenBranch = thenBranch;
-        this.elseBranch = elseBranch;
+        super(conditionExp, thenBranch, elseBranch);
     }
 
-    /**
-     * Function invoked to check for semantic errors.
-     *
-     * @param symbolTable  Symbol table to check in.
-     * @param nestingLevel Level of scope the node is in.
-     * @return List of semantic error.
-     */
     @Override
-    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
-        // Check for condition semantic errors
-        ArrayList<SemanticError> errors = new ArrayList<>(conditionExp.checkSemantics(symbolTable, nestingLevel));
-        // Create a deep copy of the symbol table and pass it to else branch, this is needed to check if both branches
-        // have the same entries initialized
-        SymbolTable elseSymbolTable = new SymbolTable(symbolTable);
-        // Check for then branch semantic errors
-        errors.addAll(thenBranch.checkSemantics(symbolTable, nestingLevel));
-        // Check for else branch semantic errors
-        errors.addAll(elseBranch.checkSemantics(elseSymbolTable, nestingLevel));
-        // Get the lists of entries seen as initialized in the branches
-        ArrayList<String> stInitialized = symbolTable.getInitializedEntries();
-        ArrayList<String> estInitialized = elseSymbolTable.getInitializedEntries();
-
-        // Check if then branch and else branch initialized the same variables
-        if (stInitialized.size() != estInitialized.size() || !stInitialized.containsAll(estInitialized)) {
-            // Make a list of all unique id initialized in ony one branch
-            ArrayList<String> difference1 = new ArrayList<>(stInitialized);
-            ArrayList<String> difference2 = new ArrayList<>(estInitialized);
-            difference1.removeAll(estInitialized);
-            difference2.removeAll(stInitialized);
-
-            ArrayList<STEntry> difference = new ArrayList<>();
-
-            for (String id : difference1)
-                difference.add(symbolTable.lookup(id));
-
-            for (String id : difference2)
-                difference.add(symbolTable.lookup(id));
-
-            // Mark entries with conditional warning
-            for (STEntry entry : difference)
-                entry.markConditionWarning();
-        }
+    protected IfNode elseIf() {
+        IfBodyExpNode body = (IfBodyExpNode) elseBranch;
+
+        if (body.getStatementList().isEmpty() && body.getExp() instanceof IfExpNode node)
+            return node;
 
-        return errors;
+        return null;
     }
 
-    /**
-     * Determines the type of the token.
-     *
-     * @return Type class of the corresponding node type.
-     */
     @Override
-    public Type typeCheck() {
-        // Check if condition is a boolean type
-        if (conditionExp.typeCheck() instanceof BoolType) {
-            Type thenType = thenBranch.typeCheck();
-            Type elseType = elseBranch.typeCheck();
-
-            // Check for then branch type errors
-            if (thenType instanceof ErrorType)
-                return thenType;
-
-            // Check for else branch type errors
-            if (elseType instanceof ErrorType)
-                return elseType;
-
-            // Check if then and else branches return the same type
-            return thenType.isEqual(elseType) ? thenType :
-                    new ErrorType("Type error: then branch and else branch mismatch return type.");
-        } else
-            return new ErrorType("Type error: if condition must be a boolean.");
+    protected void setElseIf(Node node) {
+        ((IfBodyExpNode) elseBranch).setExp(node);
+    }
+
+    @Override
+    protected Type typeCheck(Type thenType, Type elseType) {
+        // Check for then branch type errors
+        if (thenType instanceof ErrorType)
+            return thenType;
+
+        // Check for else branch type errors
+        if (elseType instanceof ErrorType)
+            return elseType;
+
+        // Check if then and else branches return the same type
+        return thenType.isEqual(elseType) ? thenType :
+                new ErrorType("Type error: then branch and else branch mismatch return type.");
     }
 
     /**
-     * Bytecode generation for interpreter.
+     * The chain of else branches is copied with a loop, as the other passes walk it.
      *
-     * @return Code.
+     * @param arguments Expressions replacing the identifiers they are mapped to, copied at every use.
+     * @return Copy of the node, null if the node cannot be copied.
      */
     @Override
-    public String codeGeneration() {
-        String labelThen = CodeGenSupport.newLabel();
-        String labelEnd = CodeGenSupport.newLabel();
-
-        return conditionExp.codeGeneration() +
-                // 1 -> true
-                "storei T1 1 \n" +
-                // Check if condition return true
-                "beq A0 T1 " + labelThen + "\n" +
-                elseBranch.codeGeneration() +
-                "b " + labelEnd + " \n" +
-                labelThen + ": \n" +
-                thenBranch.codeGeneration() +
-                labelEnd + ": \n" ;
-    }
+    public Node copy(Map<String, Node> arguments) {
+        ArrayList<IfNode> chain = elseChain();
+        ArrayList<Node> conditionCopies = new ArrayList<>();
+        ArrayList<Node> thenCopies = new ArrayList<>();
 
-    @Override
-    public String toPrint(int tab) {
-        return "  ".repeat(tab) + "If " +  "\n" + conditionExp.toPrint(tab + 1) +
-                thenBranch.toPrint(tab + 1) +
-                elseBranch.toPrint(tab + 1);
+        for (IfNode node : chain) {
+            Node conditionCopy = node.conditionExp.copy(arguments);
+            Node thenCopy = node.thenBranch.copy(arguments);
+
+            if (conditionCopy == null || thenCopy == null)
+                return null;
+
+            conditionCopies.add(conditionCopy);
+            thenCopies.add(thenCopy);
+        }
+
+        Node copy = chain.get(chain.size() - 1).elseBranch.copy(arguments);
+
+        for (int i = chain.size() - 1; i >= 0 && copy != null; i--) {
+            // The else branch of an if of the chain only holds the copy of the next if
+            IfBodyExpNode elseCopy = i < chain.size() - 1 ? new IfBodyExpNode(new ArrayList<>(), copy) :
+                    (IfBodyExpNode) copy;
+            copy = new IfExpNode(conditionCopies.get(i), (IfBodyExpNode) thenCopies.get(i), elseCopy);
+        }
+
+        return copy;
     }
 }
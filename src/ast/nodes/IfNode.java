@@ -0,0 +1,346 @@
+package ast.nodes;
+
+import ast.types.BoolType;
+import ast.types.ErrorType;
+import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
+import utils.STEntry;
+import utils.SemanticError;
+import utils.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Abstract node for if blocks. An else branch made only of another if, like the else if cascades of a generated
+ * source, nests the cascade on the else branches: every pass walks the chain of else branches with a loop and
+ * recurses only on the conditions, on the then branches and on the last else branch, so that the length of a cascade
+ * does not use up the Java stack.
+ */
+public abstract class IfNode implements Node {
+    protected Node conditionExp;
+    protected final IfBodyStmNode thenBranch;
+    protected final IfBodyStmNode elseBranch;
+
+    public IfNode(Node conditionExp, IfBodyStmNode thenBranch, IfBodyStmNode elseBranch) {
+        this.conditionExp = conditionExp;
+        this.thenBranch = thenBranch;
+        this.elseBranch = elseBranch;
+    }
+
+    /**
+     * @return If the else branch is only made of, null if the else branch holds anything else.
+     */
+    protected abstract IfNode elseIf();
+
+    /**
+     * Replace the if the else branch is only made of.
+     *
+     * @param node Node replacing it.
+     */
+    protected abstract void setElseIf(Node node);
+
+    /**
+     * Collect the chain of ifs from this node down its else branches.
+     *
+     * @return The ifs of the chain, this node first.
+     */
+    protected final ArrayList<IfNode> elseChain() {
+        ArrayList<IfNode> chain = new ArrayList<>();
+
+        for (IfNode node = this; node != null; node = node.elseIf())
+            chain.add(node);
+
+        return chain;
+    }
+
+    /**
+     * Function invoked to check for semantic errors.
+     *
+     * @param symbolTable  Symbol table to check in.
+     * @param nestingLevel Level of scope the node is in.
+     * @return List of semantic error.
+     */
+    @Override
+    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
+        ArrayList<IfNode> chain = elseChain();
+        ArrayList<SemanticError> errors = new ArrayList<>();
+        // Symbol tables the then branches of the chain are checked in, followed by the one of the last else branch
+        ArrayList<SymbolTable> symbolTables = new ArrayList<>();
+
+        for (IfNode node : chain) {
+            // Check for condition semantic errors
+            errors.addAll(node.conditionExp.checkSemantics(symbolTable, nestingLevel));
+            // Create a deep copy of the symbol table and pass it to else branch, this is needed to check if both
+            // branches have the same entries initialized
+            SymbolTable elseSymbolTable = new SymbolTable(symbolTable);
+            // Check for then branch semantic errors
+            errors.addAll(node.thenBranch.checkSemantics(symbolTable, nestingLevel));
+            symbolTables.add(symbolTable);
+            // The else branch is checked by the next if of the chain
+            symbolTable = elseSymbolTable;
+        }
+
+        // Check for else branch semantic errors
+        errors.addAll(chain.get(chain.size() - 1).elseBranch.checkSemantics(symbolTable, nestingLevel));
+        symbolTables.add(symbolTable);
+
+        for (int i = chain.size() - 1; i >= 0; i--)
+            markConditionWarnings(symbolTables.get(i), symbolTables.get(i + 1));
+
+        return errors;
+    }
+
+    /**
+     * Mark with a conditional warning the entries initialized in only one branch.
+     *
+     * @param symbolTable Symbol table of the then branch.
+     * @param elseSymbolTable Symbol table of the else branch.
+     */
+    private static void markConditionWarnings(SymbolTable symbolTable, SymbolTable elseSymbolTable) {
+        // Get the lists of entries seen as initialized in the branches
+        ArrayList<String> stInitialized = symbolTable.getInitializedEntries();
+        ArrayList<String> estInitialized = elseSymbolTable.getInitializedEntries();
+
+        // Check if then branch and else branch initialized the same variables
+        if (stInitialized.size() != estInitialized.size() || !stInitialized.containsAll(estInitialized)) {
+            // Make a list of all unique id initialized in ony one branch
+            ArrayList<String> difference1 = new ArrayList<>(stInitialized);
+            ArrayList<String> difference2 = new ArrayList<>(estInitialized);
+            difference1.removeAll(estInitialized);
+            difference2.removeAll(stInitialized);
+
+            ArrayList<STEntry> difference = new ArrayList<>();
+
+            for (String id : difference1)
+                difference.add(symbolTable.lookup(id));
+
+            for (String id : difference2)
+                difference.add(symbolTable.lookup(id));
+
+            // Mark entries with conditional warning
+            for (STEntry entry : difference)
+                entry.markConditionWarning();
+        }
+    }
+
+    /**
+     * Determines the type of the token.
+     *
+     * @return Type class of the corresponding node type.
+     */
+    @Override
+    public Type typeCheck() {
+        ArrayList<IfNode> chain = elseChain();
+        // Types of the then branches checked, top down
+        ArrayList<Type> thenTypes = new ArrayList<>();
+        Type type = null;
+
+        while (true) {
+            IfNode node = chain.get(thenTypes.size());
+
+            // Check if condition is a boolean type
+            if (!(node.conditionExp.typeCheck() instanceof BoolType)) {
+                type = new ErrorType("Type error: if condition must be a boolean.");
+                break;
+            }
+
+            Type thenType = node.thenBranch.typeCheck();
+            thenTypes.add(thenType);
+
+            if (!node.checksElseBranch(thenType))
+                break;
+
+            if (thenTypes.size() == chain.size()) {
+                type = node.elseBranch.typeCheck();
+                break;
+            }
+        }
+
+        for (int i = thenTypes.size() - 1; i >= 0; i--)
+            type = chain.get(i).typeCheck(thenTypes.get(i), type);
+
+        return type;
+    }
+
+    /**
+     * @param thenType Type of the then branch.
+     * @return True if the else branch is checked after the then branch, false to leave it unchecked.
+     */
+    protected boolean checksElseBranch(Type thenType) {
+        return true;
+    }
+
+    /**
+     * Determines the type of the if from the types of its branches, its condition being a boolean.
+     *
+     * @param thenType Type of the then branch.
+     * @param elseType Type of the else branch, null if it is not checked.
+     * @return Type class of the corresponding node type.
+     */
+    protected abstract Type typeCheck(Type thenType, Type elseType);
+
+    /**
+     * Bytecode generation for interpreter.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     */
+    @Override
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        ArrayList<IfNode> chain = elseChain();
+        String labelEnd = context.newLabel();
+
+        for (IfNode node : chain) {
+            String labelElse = context.newLabel();
+
+            // The condition falls through to the then branch or jumps to the else branch
+            node.conditionExp.conditionGeneration(context, code, null, labelElse);
+            node.thenBranch.codeGeneration(context, code);
+            code.b(labelEnd)
+                    .label(labelElse);
+        }
+
+        chain.get(chain.size() - 1).elseBranch.codeGeneration(context, code);
+        code.label(labelEnd);
+    }
+
+    @Override
+    public void markTailCalls(int callerParameters) {
+        ArrayList<IfNode> chain = elseChain();
+
+        for (IfNode node : chain)
+            node.thenBranch.markTailCalls(callerParameters);
+
+        chain.get(chain.size() - 1).elseBranch.markTailCalls(callerParameters);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        ArrayList<IfNode> chain = elseChain();
+
+        for (IfNode node : chain) {
+            node.conditionExp.freeNames(names);
+            node.thenBranch.freeNames(names);
+        }
+
+        chain.get(chain.size() - 1).elseBranch.freeNames(names);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        ArrayList<IfNode> chain = elseChain();
+
+        for (IfNode node : chain) {
+            node.conditionExp.addCallArguments(function, arguments);
+            node.thenBranch.addCallArguments(function, arguments);
+        }
+
+        chain.get(chain.size() - 1).elseBranch.addCallArguments(function, arguments);
+    }
+
+    /**
+     * A constant condition leaves only the branch taken. The conditions and the branches of the chain are folded top
+     * down, the ifs are then replaced bottom up.
+     *
+     * @param constants Literal values of the variables assigned exactly once, known where the node is evaluated.
+     * @return Branch taken if the condition is constant, the node itself otherwise.
+     */
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        ArrayList<IfNode> chain = elseChain();
+
+        for (IfNode node : chain) {
+            node.conditionExp = node.conditionExp.fold(constants);
+            node.thenBranch.fold(constants);
+        }
+
+        chain.get(chain.size() - 1).elseBranch.fold(constants);
+        Node folded = null;
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            IfNode node = chain.get(i);
+
+            if (folded != null)
+                node.setElseIf(folded);
+
+            if (node.conditionExp instanceof BoolNode)
+                folded = ((BoolNode) node.conditionExp).getValue() ? node.thenBranch : node.elseBranch;
+            else
+                folded = node;
+        }
+
+        return folded;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return List.of(conditionExp, thenBranch, elseBranch);
+    }
+
+    /**
+     * A variable is live before the node if it is read by the condition or is live before either branch.
+     *
+     * @param live Variables read after the node, updated to the ones read before it.
+     * @param candidates Variables of the body the node is in whose assignments can be removed.
+     * @return Number of assignments removed.
+     */
+    @Override
+    public int removeDeadStores(Set<String> live, Set<String> candidates) {
+        ArrayList<IfNode> chain = elseChain();
+        // Variables live after the then branches of the chain, followed by the ones live after the last else branch
+        ArrayList<Set<String>> lives = new ArrayList<>();
+        int removed = 0;
+
+        for (IfNode node : chain) {
+            HashSet<String> elseLive = new HashSet<>(live);
+            removed += node.thenBranch.removeDeadStores(live, candidates);
+            lives.add(live);
+            // The else branch is visited by the next if of the chain
+            live = elseLive;
+        }
+
+        removed += chain.get(chain.size() - 1).elseBranch.removeDeadStores(live, candidates);
+        lives.add(live);
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            lives.get(i).addAll(lives.get(i + 1));
+            removed += chain.get(i).conditionExp.removeDeadStores(lives.get(i), candidates);
+        }
+
+        return removed;
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        ArrayList<IfNode> chain = elseChain();
+
+        for (IfNode node : chain) {
+            node.conditionExp = node.conditionExp.inlineCalls(expansion);
+            node.thenBranch.inlineCalls(expansion);
+        }
+
+        chain.get(chain.size() - 1).elseBranch.inlineCalls(expansion);
+
+        return this;
+    }
+
+    @Override
+    public String toPrint(int tab) {
+        ArrayList<IfNode> chain = elseChain();
+        StringBuilder out = new StringBuilder();
+
+        for (int i = 0; i < chain.size(); i++)
+            out.append("  ".repeat(tab + i)).append("If ").append("\n")
+                    .append(chain.get(i).conditionExp.toPrint(tab + i + 1))
+                    .append(chain.get(i).thenBranch.toPrint(tab + i + 1));
+
+        return out.append(chain.get(chain.size() - 1).elseBranch.toPrint(tab + chain.size())).toString();
+    }
+}
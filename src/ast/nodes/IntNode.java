@@ -2,10 +2,15 @@ package ast.nodes;
 
 import ast.types.IntType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Map;
+
+import static evaluator.ExecuteVM.A0;
 
 /**
  * Node for integer values.
@@ -17,6 +22,10 @@ public class IntNode implements Node {
         this.value = value ;
     }
 
+    public int getValue() {
+        return value;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -42,11 +51,17 @@ public class IntNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return "storei A0 "+ value + "\n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        code.storei(A0, value);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        return new IntNode(value);
     }
 
     @Override
@@ -0,0 +1,107 @@
+package ast.nodes;
+
+import ast.types.BoolType;
+import ast.types.ErrorType;
+import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
+
+/**
+ * Abstract node for the short-circuit logical operators: the right operand is evaluated only if the left one does
+ * not decide the result.
+ */
+public abstract class LogicalOpNode extends BinaryOpNode {
+    public LogicalOpNode(Node left, Node right) {
+        super(left, right);
+    }
+
+    /**
+     * @return Value of the left operand that is the result of the operation, without evaluating the right one.
+     */
+    protected abstract boolean shortCircuitValue();
+
+    @Override
+    protected Type typeCheck(Type left, Supplier<Type> right) {
+        // Check if both operands are booleans
+        if (left instanceof BoolType && right.get() instanceof BoolType)
+            return new BoolType();
+        else
+            return new ErrorType("Type Error: Non booleans in " + operation.toLowerCase() + " operation.");
+    }
+
+    @Override
+    protected void operationGeneration(CompilationContext context, CodeBuilder code) {
+        String labelEnd = context.newLabel();
+
+        // If the left operand decides the result, A0 already contains it
+        code.storei(T1, shortCircuitValue() ? 1 : 0)
+                .beq(A0, T1, labelEnd);
+        right.codeGeneration(context, code);
+        code.label(labelEnd);
+    }
+
+    /**
+     * A left operand that decides the result jumps to the target of that value, skipping the right one. A chain of
+     * logical operators is compiled with a loop: the targets of the left operands are found top down, the right
+     * operands are then compiled bottom up.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param labelTrue Target if the expression is true, null to fall through.
+     * @param labelFalse Target if the expression is false, null to fall through.
+     */
+    @Override
+    public void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                    String labelFalse) {
+        ArrayList<LogicalOpNode> chain = new ArrayList<>();
+        ArrayList<String[]> targets = new ArrayList<>();
+        // Labels defined after the right operand of a node, where its left operand falls through to
+        ArrayList<String> ends = new ArrayList<>();
+        Node node = this;
+
+        while (node instanceof LogicalOpNode logical) {
+            String shortCircuit = logical.shortCircuitValue() ? labelTrue : labelFalse;
+            String labelEnd = shortCircuit != null ? shortCircuit : context.newLabel();
+
+            chain.add(logical);
+            targets.add(new String[]{labelTrue, labelFalse});
+            ends.add(shortCircuit != null ? null : labelEnd);
+
+            // Targets of the left operand
+            labelTrue = logical.shortCircuitValue() ? labelEnd : null;
+            labelFalse = logical.shortCircuitValue() ? null : labelEnd;
+            node = logical.left;
+        }
+
+        node.conditionGeneration(context, code, labelTrue, labelFalse);
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            chain.get(i).right.conditionGeneration(context, code, targets.get(i)[0], targets.get(i)[1]);
+
+            if (ends.get(i) != null)
+                code.label(ends.get(i));
+        }
+    }
+
+    /**
+     * A constant left operand decides the result or leaves the right one; a constant right operand that does not
+     * decide the result leaves the left one.
+     *
+     * @return Node replacing this one, the node itself if it is not folded as a whole.
+     */
+    @Override
+    protected Node foldOperands() {
+        if (left instanceof BoolNode)
+            return ((BoolNode) left).getValue() == shortCircuitValue() ? left : right;
+        else if (right instanceof BoolNode && ((BoolNode) right).getValue() != shortCircuitValue())
+            return left;
+
+        return this;
+    }
+}
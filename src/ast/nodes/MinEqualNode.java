@@ -1,6 +1,9 @@
 package ast.nodes;
 
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for relational operator "<=".
@@ -11,25 +14,25 @@ public class MinEqualNode extends RelationalOpNode {
         operation = "Minor-equal";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        String labelTrue = CodeGenSupport.newLabel();
-        String labelEnd = CodeGenSupport.newLabel();
-
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "bleq T1 A0 " + labelTrue + "\n" +
-                "storei A0 0 \n" +
-                "b " + labelEnd + "\n" +
-                labelTrue + ": \n" +
-                "storei A0 1 \n" +
-                labelEnd + ": \n";
+    protected void branch(CodeBuilder code, String label) {
+        code.bleq(T1, A0, label);
+    }
+
+    @Override
+    protected boolean branchesOnTrue() {
+        return true;
+    }
+
+
+    @Override
+    protected boolean compare(int left, int right) {
+        return left <= right;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new MinEqualNode(left, right);
     }
 }
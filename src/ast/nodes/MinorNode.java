@@ -1,6 +1,9 @@
 package ast.nodes;
 
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for relational operator "<".
@@ -11,30 +14,26 @@ public class MinorNode extends RelationalOpNode {
         operation = "Minor";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        String labelTrue = CodeGenSupport.newLabel();
-        String labelFalse = CodeGenSupport.newLabel();
-        String labelEnd = CodeGenSupport.newLabel();
-
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                // Check if left is <= to right
-                "bleq T1 A0 " + labelTrue + "\n" +
-                labelFalse + ": \n" +
-                "storei A0 0 \n" +
-                "b " + labelEnd + "\n" +
-                labelTrue + ": \n" +
-                // Check if right is equal to left
-                "beq A0 T1 " + labelFalse + "\n" +
-                "storei A0 1 \n" +
-                labelEnd + ": \n";
+    protected void branch(CodeBuilder code, String label) {
+        // left < right does not hold when right <= left
+        code.bleq(A0, T1, label);
+    }
+
+    @Override
+    protected boolean branchesOnTrue() {
+        return false;
+    }
+
+
+    @Override
+    protected boolean compare(int left, int right) {
+        return left < right;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new MinorNode(left, right);
     }
 }
@@ -1,5 +1,10 @@
 package ast.nodes;
 
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
+
 /**
  * Node for arithmetic operator "-".
  */
@@ -9,18 +14,25 @@ public class MinusNode extends ArithmeticOpNode {
         operation = "Subtraction";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "sub T1 A0 \n" +
-                "popr A0 \n";
+    protected void instruction(CodeBuilder code) {
+        code.sub(T1, A0);
+    }
+
+
+    @Override
+    protected Node foldConstants(int left, int right) {
+        return new IntNode(left - right);
+    }
+
+    @Override
+    protected Node foldIdentity() {
+        return isInt(right, 0) ? left : this;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new MinusNode(left, right);
     }
 }
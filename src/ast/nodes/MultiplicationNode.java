@@ -1,5 +1,10 @@
 package ast.nodes;
 
+import evaluator.CodeBuilder;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
+
 /**
  * Node for arithmetic operator "*".
  */
@@ -9,18 +14,28 @@ public class MultiplicationNode extends ArithmeticOpNode {
         operation = "Multiplication";
     }
 
-    /**
-     * Bytecode generation for interpreter.
-     *
-     * @return Code.
-     */
     @Override
-    public String codeGeneration() {
-        return left.codeGeneration() +
-                "pushr A0 \n" +
-                right.codeGeneration() +
-                "popr T1 \n" +
-                "mul A0 T1 \n" +
-                "popr A0 \n";
+    protected void instruction(CodeBuilder code) {
+        code.mul(A0, T1);
+    }
+
+
+    @Override
+    protected Node foldConstants(int left, int right) {
+        return new IntNode(left * right);
+    }
+
+    @Override
+    protected Node foldIdentity() {
+        if (isInt(left, 1))
+            return right;
+
+        return isInt(right, 1) ? left : this;
+    }
+
+
+    @Override
+    protected Node create(Node left, Node right) {
+        return new MultiplicationNode(left, right);
     }
 }
@@ -1,10 +1,22 @@
 package ast.nodes;
 
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Generic node interface.
@@ -29,9 +41,207 @@ public interface Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     */
+    void codeGeneration(CompilationContext context, CodeBuilder code);
+
+    /**
+     * Bytecode generation of a boolean expression as jumps, without computing its value: control reaches labelTrue
+     * if the expression is true and labelFalse otherwise. A null label stands for the code that follows, at most
+     * one of the labels is null. By default the value is computed in A0 and tested.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param labelTrue Target if the expression is true, null to fall through.
+     * @param labelFalse Target if the expression is false, null to fall through.
+     */
+    default void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                     String labelFalse) {
+        codeGeneration(context, code);
+        // Test against the value that jumps to a label, the other one falls through
+        int value = labelTrue != null ? 1 : 0;
+        code.storei(T1, value);
+        jump(context, code, label -> code.beq(A0, T1, label), value == 1, labelTrue, labelFalse);
+    }
+
+    /**
+     * Mark the function calls in tail position of the node, so that they reuse the frame of the caller.
+     *
+     * @param callerParameters Number of parameters of the function the node is the tail of.
+     */
+    default void markTailCalls(int callerParameters) {
+    }
+
+    /**
+     * Collect the names the node uses and does not declare.
+     *
+     * @param names Free names found so far, with the scopes declared around the node.
+     */
+    default void freeNames(FreeNames names) {
+    }
+
+    /**
+     * Append arguments to the calls of a lifted function in the node, without entering nested functions.
+     *
+     * @param function Identifier of the function.
+     * @param arguments Identifiers of the variables passed as extra arguments.
      */
-    String codeGeneration();
+    default void addCallArguments(String function, List<String> arguments) {
+    }
+
+    /**
+     * Fold the constant subtrees of the node into literals.
+     *
+     * @param constants Literal values of the variables assigned exactly once, known where the node is evaluated.
+     * @return Node replacing this one, the node itself if it is not folded as a whole.
+     */
+    default Node fold(Map<String, Node> constants) {
+        return this;
+    }
+
+    /**
+     * Remove the assignments in the node whose value is never read, visiting it backwards.
+     *
+     * @param live Variables read after the node, updated to the ones read before it.
+     * @param candidates Variables of the body the node is in whose assignments can be removed.
+     * @return Number of assignments removed.
+     */
+    default int removeDeadStores(Set<String> live, Set<String> candidates) {
+        FreeNames names = new FreeNames();
+        freeNames(names);
+        live.addAll(names.getRead());
+
+        return 0;
+    }
+
+    /**
+     * Copy the node without its bindings, to be checked again in another scope.
+     *
+     * @param arguments Expressions replacing the identifiers they are mapped to, copied at every use.
+     * @return Copy of the node, null if the node cannot be copied.
+     */
+    default Node copy(Map<String, Node> arguments) {
+        return null;
+    }
+
+    /**
+     * Replace the function calls in the node, arguments first.
+     *
+     * @param expansion Expression replacing a call, the call itself if it is not expanded.
+     * @return Node replacing this one, the node itself if it is not a call.
+     */
+    default Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        return this;
+    }
+
+    /**
+     * @return Child nodes, in evaluation order.
+     */
+    default List<Node> getChildren() {
+        return List.of();
+    }
+
+    /**
+     * Count the nodes of a tree.
+     *
+     * @param root Root of the tree.
+     * @return Number of nodes.
+     */
+    static int count(Node root) {
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        int count = 0;
+
+        while (!pending.isEmpty()) {
+            count++;
+
+            for (Node child : pending.pop().getChildren())
+                pending.push(child);
+        }
+
+        return count;
+    }
+
+    /**
+     * Compute the depth of a tree without recursion, so that it can be measured before it is printed.
+     *
+     * @param root Root of the tree.
+     * @return Number of nodes on the longest path from the root.
+     */
+    static int depth(Node root) {
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        pending.push(root);
+        depths.push(1);
+        int depth = 0;
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int level = depths.pop();
+            depth = Math.max(depth, level);
+
+            for (Node child : node.getChildren()) {
+                pending.push(child);
+                depths.push(level + 1);
+            }
+        }
+
+        return depth;
+    }
+
+    /**
+     * Check if an expression has no side effects: it calls no function, that could assign global variables, and
+     * divides by no value, that could be zero.
+     *
+     * @param exp Expression.
+     * @return true if evaluating the expression only computes its value, false otherwise.
+     */
+    static boolean isPure(Node exp) {
+        ArrayDeque<Node> pending = new ArrayDeque<>();
+        pending.push(exp);
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+
+            if (node instanceof FunCallNode || node instanceof DivisionNode)
+                return false;
+
+            for (Node child : node.getChildren())
+                pending.push(child);
+        }
+
+        return true;
+    }
+
+    /**
+     * Complete the jumps of a condition tested by a single branch, just emitted by the given function.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param branch Function appending the branch to a label.
+     * @param onTrue true if the branch is taken when the condition holds, false if it is taken when it does not.
+     * @param labelTrue Target if the condition holds, null to fall through.
+     * @param labelFalse Target if the condition does not hold, null to fall through.
+     */
+    static void jump(CompilationContext context, CodeBuilder code, Consumer<String> branch, boolean onTrue,
+                     String labelTrue, String labelFalse) {
+        String taken = onTrue ? labelTrue : labelFalse;
+        String other = onTrue ? labelFalse : labelTrue;
+
+        if (taken == null) {
+            // The branch skips the jump to the other target
+            String labelSkip = context.newLabel();
+            branch.accept(labelSkip);
+            code.b(other)
+                    .label(labelSkip);
+        } else {
+            branch.accept(taken);
+
+            if (other != null)
+                code.b(other);
+        }
+    }
 
     String toPrint(int tab);
 }
\ No newline at end of file
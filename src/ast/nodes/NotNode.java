@@ -3,14 +3,23 @@ package ast.nodes;
 import ast.types.BoolType;
 import ast.types.ErrorType;
 import ast.types.Type;
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
- * Node for logical operator "!".
+ * Node for logical operator "!". Negations nest on their operand, so every pass walks a chain of negations with a
+ * loop and recurses only on the first operand that is not one.
  */
 public class NotNode implements Node {
     private Node exp;
@@ -19,6 +28,30 @@ public class NotNode implements Node {
         this.exp = exp;
     }
 
+    /**
+     * @return Last negation of the chain starting at this node.
+     */
+    private NotNode last() {
+        NotNode node = this;
+
+        while (node.exp instanceof NotNode not)
+            node = not;
+
+        return node;
+    }
+
+    /**
+     * @return Number of negations of the chain starting at this node.
+     */
+    private int length() {
+        int length = 1;
+
+        for (NotNode node = this; node.exp instanceof NotNode not; node = not)
+            length++;
+
+        return length;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -29,7 +62,7 @@ public class NotNode implements Node {
     @Override
     public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
         // Check for expression semantic errors
-        return new ArrayList<>(exp.checkSemantics(symbolTable, nestingLevel));
+        return new ArrayList<>(last().exp.checkSemantics(symbolTable, nestingLevel));
     }
 
     /**
@@ -39,35 +72,122 @@ public class NotNode implements Node {
      */
     @Override
     public Type typeCheck() {
-        // Check if expression is boolean
-        if (exp.typeCheck() instanceof BoolType)
-            return new BoolType();
-        else
-            return new ErrorType("Type Error: Non booleans in not operation.");
+        Type type = last().exp.typeCheck();
+
+        // Check if expression is boolean, for each negation of the chain bottom up
+        for (int i = length(); i > 0; i--)
+            type = type instanceof BoolType ? new BoolType() :
+                    new ErrorType("Type Error: Non booleans in not operation.");
+
+        return type;
     }
 
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        String labelEnd = CodeGenSupport.newLabel();
-        String labelTrue = CodeGenSupport.newLabel();
-
-        return exp.codeGeneration() +
-                "storei T1 1 \n" +
-                "beq A0 T1 " + labelTrue + "\n" +
-                "storei A0 1 \n" +
-                "b " + labelEnd + "\n" +
-                labelTrue + ": \n" +
-                "storei A0 0 \n" +
-                labelEnd + ": \n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        last().exp.codeGeneration(context, code);
+
+        // Two negations cancel out
+        if (length() % 2 == 0)
+            return;
+
+        String labelEnd = context.newLabel();
+        String labelTrue = context.newLabel();
+
+        code.storei(T1, 1)
+                .beq(A0, T1, labelTrue)
+                .storei(A0, 1)
+                .b(labelEnd)
+                .label(labelTrue)
+                .storei(A0, 0)
+                .label(labelEnd);
+    }
+
+    /**
+     * Each negation of the chain swaps the targets of the operand.
+     *
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param labelTrue Target if the expression is true, null to fall through.
+     * @param labelFalse Target if the expression is false, null to fall through.
+     */
+    @Override
+    public void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                    String labelFalse) {
+        if (length() % 2 == 0)
+            last().exp.conditionGeneration(context, code, labelTrue, labelFalse);
+        else
+            last().exp.conditionGeneration(context, code, labelFalse, labelTrue);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        last().exp.freeNames(names);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        last().exp.addCallArguments(function, arguments);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        Node operand = last().exp.fold(constants);
+        int length = length();
+
+        // A folded operand is at most a single negation
+        if (operand instanceof NotNode not) {
+            operand = not.exp;
+            length++;
+        }
+
+        // Two negations cancel out, a negated literal is folded
+        if (length % 2 == 0)
+            return operand;
+        else if (operand instanceof BoolNode)
+            return new BoolNode(!((BoolNode) operand).getValue());
+
+        exp = operand;
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return List.of(exp);
+    }
+
+    @Override
+    public Node copy(Map<String, Node> arguments) {
+        Node copy = last().exp.copy(arguments);
+
+        for (int i = length(); i > 0 && copy != null; i--)
+            copy = new NotNode(copy);
+
+        return copy;
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        NotNode last = last();
+        last.exp = last.exp.inlineCalls(expansion);
+
+        return this;
     }
 
     @Override
     public String toPrint(int tab) {
-        return "  ".repeat(tab) + "Not\n" + exp.toPrint(tab + 1);
+        StringBuilder out = new StringBuilder();
+        int length = length();
+
+        for (int i = 0; i < length; i++)
+            out.append("  ".repeat(tab + i)).append("Not\n");
+
+        return out.append(last().exp.toPrint(tab + length)).toString();
     }
 }
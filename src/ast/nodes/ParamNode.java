@@ -4,6 +4,8 @@ import ast.types.ErrorType;
 import ast.types.IntType;
 import ast.types.Type;
 import ast.types.VoidType;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 import utils.STEntry;
 import utils.SemanticError;
 import utils.SymbolTable;
@@ -22,6 +24,14 @@ public class ParamNode implements Node {
         this.type = type;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -62,11 +72,11 @@ public class ParamNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return "";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
     }
 
     @Override
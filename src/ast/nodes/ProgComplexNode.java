@@ -3,11 +3,19 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.Type;
 import ast.types.VoidType;
-import utils.CodeGenSupport;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.FP;
 
 /**
  * Node for program with declarations, statements and expression.
@@ -15,7 +23,7 @@ import java.util.ArrayList;
 public class ProgComplexNode implements Node {
     private final ArrayList<Node> declarationList;
     private final ArrayList<Node> statementList;
-    private final Node exp;
+    private Node exp;
 
     public ProgComplexNode (ArrayList<Node> declarationList, ArrayList<Node> statementList, Node exp) {
         this.declarationList = declarationList;
@@ -23,6 +31,14 @@ public class ProgComplexNode implements Node {
         this.exp = exp;
     }
 
+    public ArrayList<Node> getDeclarationList() {
+        return declarationList;
+    }
+
+    public ArrayList<Node> getStatementList() {
+        return statementList;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -82,26 +98,65 @@ public class ProgComplexNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        StringBuilder decStmCode = new StringBuilder();
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        code.pushr(FP)
+                .pushr(AL);
 
         for (Node declaration : declarationList)
-            decStmCode.append(declaration.codeGeneration());
+            declaration.codeGeneration(context, code);
 
         for (Node statement : statementList)
-            decStmCode.append(statement.codeGeneration());
+            statement.codeGeneration(context, code);
+
+        if (exp != null)
+            exp.codeGeneration(context, code);
+
+        code.halt()
+                .append(context.getFunctionsCode());
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        exp = BodyNode.fold(declarationList, statementList, exp, List.of());
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        List<Node> children = new ArrayList<>(declarationList);
+        children.addAll(statementList);
+
+        if (exp != null)
+            children.add(exp);
+
+        return children;
+    }
+
+    @Override
+    public int removeDeadStores(Set<String> live, Set<String> candidates) {
+        return BodyNode.removeDeadStores(declarationList, statementList, exp, List.of());
+    }
+
+    /**
+     * Only the statements and the expression are visited, global functions are expanded by the inliner one at a
+     * time, in declaration order.
+     *
+     * @param expansion Expression replacing a call, the call itself if it is not expanded.
+     * @return The node itself.
+     */
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        statementList.replaceAll(statement -> statement.inlineCalls(expansion));
 
         if (exp != null)
-            decStmCode.append(exp.codeGeneration());
+            exp = exp.inlineCalls(expansion);
 
-        return "pushr FP \n" +
-                "pushr AL \n" +
-                decStmCode +
-                "halt \n" +
-                CodeGenSupport.getFunctionsCode();
+        return this;
     }
 
     @Override
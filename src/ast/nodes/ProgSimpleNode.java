@@ -1,16 +1,23 @@
 package ast.nodes;
 
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.FP;
 
 /**
  * Node for program with expression.
  */
 public class ProgSimpleNode implements Node {
-    private final Node exp;
+    private Node exp;
 
     public ProgSimpleNode(Node exp) {
         this.exp = exp;
@@ -49,14 +56,27 @@ public class ProgSimpleNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return "pushr FP \n" +
-                "pushr AL \n" +
-                exp.codeGeneration() +
-                "halt \n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        code.pushr(FP)
+                .pushr(AL);
+        exp.codeGeneration(context, code);
+        code.halt();
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        exp = exp.fold(constants);
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return List.of(exp);
     }
 
     @Override
@@ -1,70 +1,105 @@
 package ast.nodes;
 
+import ast.types.BoolType;
 import ast.types.ErrorType;
 import ast.types.IntType;
-import ast.types.BoolType;
 import ast.types.Type;
-import utils.SemanticError;
-import utils.SymbolTable;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
 
-import java.util.ArrayList;
+import java.util.function.Supplier;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for relational operators.
  */
-public abstract class RelationalOpNode implements Node {
-    protected String operation;
-    protected final Node left;
-    protected final Node right;
-
+public abstract class RelationalOpNode extends BinaryOpNode {
     public RelationalOpNode(Node left, Node right) {
-        this.left = left;
-        this.right = right;
+        super(left, right);
+    }
+
+    @Override
+    protected Type typeCheck(Type left, Supplier<Type> right) {
+        // Check if both operands are integers
+        if (left instanceof IntType && right.get() instanceof IntType)
+            return new BoolType();
+        else
+            return new ErrorType("Type Error: Non integers in " + operation.toLowerCase() + " operation.");
+    }
+
+    @Override
+    protected void operationGeneration(CompilationContext context, CodeBuilder code) {
+        String labelTaken = context.newLabel();
+        String labelEnd = context.newLabel();
+
+        rightGeneration(context, code);
+        branch(code, labelTaken);
+        code.storei(A0, branchesOnTrue() ? 0 : 1)
+                .b(labelEnd)
+                .label(labelTaken)
+                .storei(A0, branchesOnTrue() ? 1 : 0)
+                .label(labelEnd);
     }
 
     /**
-     * Function invoked to check for semantic errors.
+     * The comparison is a single compare-and-branch to the targets.
      *
-     * @param symbolTable  Symbol table to check in.
-     * @param nestingLevel Level of scope the node is in.
-     * @return List of semantic error.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
+     * @param labelTrue Target if the expression is true, null to fall through.
+     * @param labelFalse Target if the expression is false, null to fall through.
      */
     @Override
-    public ArrayList<SemanticError> checkSemantics(SymbolTable symbolTable, int nestingLevel) {
-        ArrayList<SemanticError> errors = new ArrayList<>();
-        // Check for left expression semantic errors
-        errors.addAll(left.checkSemantics(symbolTable, nestingLevel));
-        // Check for right expression semantic errors
-        errors.addAll(right.checkSemantics(symbolTable, nestingLevel));
+    public void conditionGeneration(CompilationContext context, CodeBuilder code, String labelTrue,
+                                    String labelFalse) {
+        left.codeGeneration(context, code);
+        rightGeneration(context, code);
+        Node.jump(context, code, label -> branch(code, label), branchesOnTrue(), labelTrue, labelFalse);
+    }
 
-        return errors;
+    /**
+     * Bytecode generation of the right operand, with the left one in A0: T1 <- left, A0 <- right.
+     */
+    private void rightGeneration(CompilationContext context, CodeBuilder code) {
+        code.pushr(A0);
+        right.codeGeneration(context, code);
+        code.popr(T1);
     }
 
     /**
-     * Determines the type of the token.
+     * Append the branch testing the comparison, with the left operand in T1 and the right one in A0.
      *
-     * @return Type class of the corresponding node type.
+     * @param code Builder the instructions are appended to.
+     * @param label Target of the branch.
+     */
+    protected abstract void branch(CodeBuilder code, String label);
+
+    /**
+     * @return true if the branch is taken when the comparison holds, false if it is taken when it does not.
      */
+    protected abstract boolean branchesOnTrue();
+
     @Override
-    public Type typeCheck() {
-        // Check if both operands are integers
-        if (left.typeCheck() instanceof IntType && right.typeCheck() instanceof IntType)
-            return new BoolType();
-        else
-            return new ErrorType("Type Error: Non integers in " + operation.toLowerCase() + " operation.");
+    protected Node foldOperands() {
+        if (left instanceof IntNode && right instanceof IntNode)
+            return new BoolNode(compare(((IntNode) left).getValue(), ((IntNode) right).getValue()));
+
+        return this;
     }
 
     /**
-     * Bytecode generation for interpreter.
+     * Compute the comparison on constant operands.
      *
-     * @return Code.
+     * @param left Left operand.
+     * @param right Right operand.
+     * @return Result of the comparison.
      */
-    @Override
-    public abstract String codeGeneration();
+    protected abstract boolean compare(int left, int right);
 
     @Override
-    public String toPrint(int tab) {
-        return "  ".repeat(tab) + operation + "\n" + left.toPrint(tab + 1) + "\n" +
-                right.toPrint(tab + 1);
+    protected String operandSeparator() {
+        return "\n";
     }
 }
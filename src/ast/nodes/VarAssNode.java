@@ -2,18 +2,28 @@ package ast.nodes;
 
 import ast.types.ErrorType;
 import ast.types.Type;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.STEntry;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static evaluator.ExecuteVM.A0;
+import static evaluator.ExecuteVM.AL;
+import static evaluator.ExecuteVM.T1;
 
 /**
  * Node for variable assignment.
  */
 public class VarAssNode implements Node {
     private final String id;
-    private final Node exp;
+    private Node exp;
     private STEntry entry;
     private int nestingUsage;
 
@@ -22,6 +32,14 @@ public class VarAssNode implements Node {
         this.exp = exp;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public Node getExp() {
+        return exp;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -66,15 +84,49 @@ public class VarAssNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
-        return exp.codeGeneration() +
-                "move AL T1 \n" +
-                "store T1 0(T1) \n".repeat(Math.max(0, nestingUsage - entry.getNesting())) +
-                "subi T1 " + entry.getOffset() + " \n" +
-                "load A0 0(T1) \n";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
+        exp.codeGeneration(context, code);
+        code.move(AL, T1);
+
+        for (int i = 0; i < nestingUsage - entry.getNesting(); i++)
+            code.store(T1, 0, T1);
+
+        code.subi(T1, entry.getOffset())
+                .load(A0, 0, T1);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        exp.freeNames(names);
+        names.assign(id);
+    }
+
+    @Override
+    public void addCallArguments(String function, List<String> arguments) {
+        exp.addCallArguments(function, arguments);
+    }
+
+    @Override
+    public Node fold(Map<String, Node> constants) {
+        exp = exp.fold(constants);
+
+        return this;
+    }
+
+    @Override
+    public List<Node> getChildren() {
+        return List.of(exp);
+    }
+
+    @Override
+    public Node inlineCalls(Function<FunCallNode, Node> expansion) {
+        exp = exp.inlineCalls(expansion);
+
+        return this;
     }
 
     @Override
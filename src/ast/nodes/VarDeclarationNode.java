@@ -3,11 +3,16 @@ package ast.nodes;
 import ast.types.ErrorType;
 import ast.types.Type;
 import ast.types.VoidType;
+import evaluator.CodeBuilder;
+import utils.CompilationContext;
+import utils.FreeNames;
 import utils.SemanticError;
 import utils.SymbolTable;
 
 import java.util.ArrayList;
 
+import static evaluator.ExecuteVM.SP;
+
 /**
  * Node for variable declaration.
  */
@@ -20,6 +25,14 @@ public class VarDeclarationNode implements Node {
         this.type = type;
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
     /**
      * Function invoked to check for semantic errors.
      *
@@ -58,12 +71,18 @@ public class VarDeclarationNode implements Node {
     /**
      * Bytecode generation for interpreter.
      *
-     * @return Code.
+     * @param context Compilation the code belongs to.
+     * @param code Builder the instructions are appended to.
      */
     @Override
-    public String codeGeneration() {
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
         // Leave the space for new variable
-        return "subi SP 1 \n";
+        code.subi(SP, 1);
+    }
+
+    @Override
+    public void freeNames(FreeNames names) {
+        names.declare(id);
     }
 
     @Override
@@ -1,11 +1,30 @@
 package ast.types;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ErrorType extends Type {
+    // Messages of the type errors found on each thread, taken by the session that prints them to its own stream
+    private static final ThreadLocal<ArrayList<String>> messages = ThreadLocal.withInitial(ArrayList::new);
+
     private final String message;
 
     public ErrorType(String message) {
         this.message = message;
-        System.out.println(message);
+        messages.get().add(message);
+    }
+
+    /**
+     * Take the messages of the type errors found on the current thread, in the order they were found, so that the
+     * next type check starts with none.
+     *
+     * @return Messages found since the last call.
+     */
+    public static List<String> takeMessages() {
+        List<String> taken = messages.get();
+        messages.remove();
+
+        return taken;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package ast.types;
 
 import ast.nodes.Node;
+import evaluator.CodeBuilder;
 import utils.*;
 
 import java.util.ArrayList;
@@ -38,10 +39,10 @@ public abstract class Type implements Node {
     /**
      * DON'T USE! NOT IMPLEMENTED.
      *
-     * @return Empty string.
+     * @param context Compilation the code belongs to.
+     * @param code Builder left unchanged.
      */
     @Override
-    public String codeGeneration() {
-        return "";
+    public void codeGeneration(CompilationContext context, CodeBuilder code) {
     }
 }
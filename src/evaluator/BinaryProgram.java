@@ -0,0 +1,201 @@
+package evaluator;
+
+import parser.SVMParser;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled program in the binary .svmb format, loaded without lexing and parsing its assembly.
+ * Layout (big endian ints):
+ * magic, format version, instruction size, label count, labels (name length, UTF-8 name, address),
+ * code length, packed instruction image.
+ */
+public class BinaryProgram {
+    public static final String EXTENSION = ".svmb";
+    private static final int MAGIC = 0x53564D42;    // "SVMB"
+    public static final int VERSION = 2;
+
+    private final int[] image;
+    private final Map<String, Integer> labels;
+
+    /**
+     * @param image Packed instruction image.
+     * @param labels Address of every label of the program.
+     */
+    public BinaryProgram(int[] image, Map<String, Integer> labels) {
+        this.image = image;
+        this.labels = labels;
+    }
+
+    public int[] getImage() {
+        return image;
+    }
+
+    public Map<String, Integer> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Write the program to a file.
+     *
+     * @param path Destination file.
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(toByteArray());
+
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return The program in the binary format.
+     */
+    public byte[] toByteArray() {
+        int size = 5 * Integer.BYTES + image.length * Integer.BYTES;
+        byte[][] names = new byte[labels.size()][];
+        int i = 0;
+
+        for (String label : labels.keySet()) {
+            names[i] = label.getBytes(StandardCharsets.UTF_8);
+            size += 2 * Integer.BYTES + names[i++].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(ExecuteVM.INSTRUCTION_SIZE).putInt(labels.size());
+        i = 0;
+
+        for (int address : labels.values())
+            buffer.putInt(names[i].length).put(names[i++]).putInt(address);
+
+        buffer.putInt(image.length);
+        buffer.asIntBuffer().put(image);
+
+        return buffer.array();
+    }
+
+    /**
+     * Load a program by mapping its file in memory.
+     *
+     * @param path Program file.
+     * @return Program loaded.
+     * @throws IOException If the file cannot be read or is not a valid program of this version.
+     */
+    public static BinaryProgram load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Read a program from a buffer in the binary format.
+     *
+     * @param buffer Buffer positioned at the start of the program.
+     * @return Program read.
+     * @throws IOException If the buffer does not hold a valid program of this version.
+     */
+    public static BinaryProgram read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a compiled SVM program.");
+
+            int version = buffer.getInt();
+            if (version != VERSION || buffer.getInt() != ExecuteVM.INSTRUCTION_SIZE)
+                throw new IOException("Unsupported compiled program version " + version + ".");
+
+            int labelCount = buffer.getInt();
+            LinkedHashMap<String, Integer> labels = new LinkedHashMap<>();
+
+            for (int i = 0; i < labelCount; i++) {
+                byte[] name = new byte[length(buffer, 1)];
+                buffer.get(name);
+                labels.put(new String(name, StandardCharsets.UTF_8), buffer.getInt());
+            }
+
+            int[] image = new int[length(buffer, Integer.BYTES)];
+            if (image.length % ExecuteVM.INSTRUCTION_SIZE != 0)
+                throw new IOException("Truncated compiled program.");
+
+            buffer.asIntBuffer().get(image);
+            validate(image);
+
+            for (int address : labels.values())
+                if (address < 0 || address > image.length / ExecuteVM.INSTRUCTION_SIZE)
+                    throw new IOException("Invalid label address " + address + ".");
+
+            return new BinaryProgram(image, labels);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated compiled program.");
+        }
+    }
+
+    /**
+     * Read the length of an array, checking that the buffer holds it before it is allocated.
+     *
+     * @param buffer Buffer positioned at the length.
+     * @param elementSize Bytes of every element.
+     * @return Number of elements.
+     * @throws IOException If the length is negative or the buffer is shorter.
+     */
+    private static int length(ByteBuffer buffer, int elementSize) throws IOException {
+        int length = buffer.getInt();
+
+        if (length < 0 || (long) length * elementSize > buffer.remaining())
+            throw new IOException("Truncated compiled program.");
+
+        return length;
+    }
+
+    /**
+     * Check that every slot of an image is an instruction the VM can execute: a known opcode, registers in
+     * the register file and branch and call targets inside the image.
+     *
+     * @param image Packed instruction image.
+     * @throws IOException If a slot is not a valid instruction.
+     */
+    private static void validate(int[] image) throws IOException {
+        int slots = image.length / ExecuteVM.INSTRUCTION_SIZE;
+
+        for (int ip = 0; ip < slots; ip++) {
+            int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+            int arg1 = image[pc + ExecuteVM.ARG1];
+            int arg2 = image[pc + ExecuteVM.ARG2];
+            int arg3 = image[pc + ExecuteVM.ARG3];
+
+            boolean valid = switch (image[pc + ExecuteVM.OPCODE]) {
+                case SVMParser.PUSH, SVMParser.POP, SVMParser.HALT -> true;
+                case SVMParser.PUSHR, SVMParser.POPR, SVMParser.RETURNSUB, SVMParser.STOREI, SVMParser.ADDI,
+                        SVMParser.SUBI, SVMParser.MULI, SVMParser.DIVI -> isRegister(arg1);
+                case SVMParser.LOAD, SVMParser.STORE -> isRegister(arg1) && isRegister(arg3);
+                case SVMParser.MOVE, SVMParser.ADD, SVMParser.SUB, SVMParser.MUL, SVMParser.DIV ->
+                        isRegister(arg1) && isRegister(arg2);
+                case SVMParser.BRANCH -> arg3 >= 0 && arg3 < slots;
+                case SVMParser.BRANCHEQ, SVMParser.BRANCHLESSEQ ->
+                        isRegister(arg1) && isRegister(arg2) && arg3 >= 0 && arg3 < slots;
+                case SVMParser.JUMPSUB -> arg1 >= 0 && arg1 < slots;
+                case MemoTable.MEMO, MemoTable.MEMO_PUT -> arg1 >= 0 && arg2 >= 0;
+                default -> false;
+            };
+
+            if (!valid)
+                throw new IOException("Invalid instruction at " + ip + " in compiled program.");
+        }
+    }
+
+    private static boolean isRegister(int register) {
+        return register >= 0 && register < ExecuteVM.REGISTERS;
+    }
+}
@@ -0,0 +1,175 @@
+package evaluator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+
+/**
+ * Minimal JVM class file writer: a constant pool and static methods with a Code attribute. Classes are
+ * written with major version 49, so that they are checked by the type-inferencing verifier and no
+ * StackMapTable is needed.
+ */
+class ClassFileWriter {
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final HashMap<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+
+    private final String thisClass;
+    private final String superClass;
+
+    /**
+     * @param thisClass Internal name of the class written.
+     * @param superClass Internal name of its super class.
+     */
+    public ClassFileWriter(String thisClass, String superClass) {
+        this.thisClass = thisClass;
+        this.superClass = superClass;
+    }
+
+    public int utf8(String value) {
+        return constant("U" + value, () -> {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        });
+    }
+
+    public int integer(int value) {
+        return constant("I" + value, () -> {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+        });
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+
+        return constant("C" + internalName, () -> {
+            pool.writeByte(CONSTANT_CLASS);
+            pool.writeShort(name);
+        });
+    }
+
+    public int string(String value) {
+        int utf8 = utf8(value);
+
+        return constant("S" + value, () -> {
+            pool.writeByte(CONSTANT_STRING);
+            pool.writeShort(utf8);
+        });
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, () -> {
+            pool.writeByte(CONSTANT_NAME_AND_TYPE);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+        });
+
+        return constant("M" + owner + "." + name + ":" + descriptor, () -> {
+            pool.writeByte(CONSTANT_METHODREF);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+        });
+    }
+
+    /**
+     * Add a method with the given bytecode and no exception handlers.
+     */
+    public void addMethod(int access, String name, String descriptor, byte[] code, int maxStack, int maxLocals) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeIndex = utf8("Code");
+
+        try {
+            methods.writeShort(access);
+            methods.writeShort(nameIndex);
+            methods.writeShort(descriptorIndex);
+            methods.writeShort(1);                      // attributes count
+            methods.writeShort(codeIndex);
+            methods.writeInt(12 + code.length);         // attribute length
+            methods.writeShort(maxStack);
+            methods.writeShort(maxLocals);
+            methods.writeInt(code.length);
+            methods.write(code);
+            methods.writeShort(0);                      // exception table length
+            methods.writeShort(0);                      // code attributes count
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        methodCount++;
+    }
+
+    public byte[] toByteArray() {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);                          // minor version
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);                          // interfaces count
+            out.writeShort(0);                          // fields count
+            out.writeShort(methodCount);
+            out.write(methodBytes.toByteArray());
+            out.writeShort(0);                          // attributes count
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface PoolWriter {
+        void write() throws IOException;
+    }
+
+    private int constant(String key, PoolWriter writer) {
+        Integer index = poolIndex.get(key);
+
+        if (index != null)
+            return index;
+
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        poolIndex.put(key, poolCount);
+
+        return poolCount++;
+    }
+}
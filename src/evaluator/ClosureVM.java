@@ -0,0 +1,231 @@
+package evaluator;
+
+import parser.SVMParser;
+
+/**
+ * VM engine that links the packed image once into an array of pre-bound handlers, one per code slot.
+ * Operands and branch targets are captured when the program is linked, so the interpreter loop only
+ * invokes the handler at IP without decoding or switching on the opcode.
+ */
+public class ClosureVM extends ExecuteVM {
+    /**
+     * Pre-bound instruction.
+     */
+    @FunctionalInterface
+    private interface Handler {
+        /**
+         * Execute the instruction.
+         *
+         * @return Address of the next instruction, -1 to stop the VM.
+         */
+        int execute();
+    }
+
+    private final Handler[] handlers;
+
+    public ClosureVM(int[] _code, int _memSize, Tracer _tracer) {
+        super(_code, _memSize, _tracer);
+        handlers = link();
+    }
+
+    @Override
+    protected void run() {
+        Handler[] linked = handlers;
+        int[] r = registers;
+        int ip = r[IP];
+        int j = 0;
+        long steps = stepBudget();
+
+        if (tracer != null) {
+            while (ip >= 0) {
+                if (--steps < 0)
+                    throw new VMException("Step limit exceeded");
+                r[IP] = ip;
+                tracer.step(j++, code[ip * INSTRUCTION_SIZE + OPCODE], r);
+                ip = linked[ip].execute();
+            }
+        } else if (stepLimit > 0) {
+            while (ip >= 0) {
+                if (--steps < 0)
+                    throw new VMException("Step limit exceeded");
+                ip = linked[ip].execute();
+            }
+        } else {
+            while (ip >= 0)
+                ip = linked[ip].execute();
+        }
+    }
+
+    /**
+     * Build the handler of every code slot of the packed image.
+     *
+     * @return Handlers indexed by instruction address.
+     */
+    private Handler[] link() {
+        int slots = code.length / INSTRUCTION_SIZE;
+        Handler[] linked = new Handler[slots];
+        int[] r = registers;
+        int[] mem = memory;
+
+        for (int ip = 0; ip < slots; ip++) {
+            int pc = ip * INSTRUCTION_SIZE;
+            int arg1 = code[pc + ARG1];
+            int arg2 = code[pc + ARG2];
+            int arg3 = code[pc + ARG3];
+            int next = ip + 1;
+
+            linked[ip] = switch (code[pc + OPCODE]) {
+                case SVMParser.PUSH -> () -> {
+                    push(arg1);
+                    return next;
+                };
+                case SVMParser.PUSHR -> () -> {
+                    push(r[arg1]);
+                    return next;
+                };
+                case SVMParser.POP -> () -> {
+                    pop();
+                    return next;
+                };
+                case SVMParser.LOAD -> () -> {
+                    int address = r[arg3] + arg2;
+                    if ((address < 0) || (address >= mem.length))
+                        throw new VMException("Null pointer exception");
+                    write(address, r[arg1]);
+                    return next;
+                };
+                case SVMParser.STOREI -> () -> {
+                    r[arg1] = arg2;
+                    return next;
+                };
+                case SVMParser.STORE -> () -> {
+                    int address = r[arg3] + arg2;
+                    if ((address < 0) || (address >= mem.length))
+                        throw new VMException("Null pointer exception");
+                    r[arg1] = mem[address];
+                    return next;
+                };
+                case SVMParser.MOVE -> () -> {
+                    r[arg2] = r[arg1];
+                    return next;
+                };
+                case SVMParser.ADD -> () -> {
+                    push(r[arg1] + r[arg2]);
+                    return next;
+                };
+                case SVMParser.ADDI -> () -> {
+                    r[arg1] = r[arg1] + arg2;
+                    return next;
+                };
+                case SVMParser.SUB -> () -> {
+                    push(r[arg1] - r[arg2]);
+                    return next;
+                };
+                case SVMParser.SUBI -> () -> {
+                    r[arg1] = r[arg1] - arg2;
+                    return next;
+                };
+                case SVMParser.MUL -> () -> {
+                    push(r[arg1] * r[arg2]);
+                    return next;
+                };
+                case SVMParser.MULI -> () -> {
+                    r[arg1] = r[arg1] * arg2;
+                    return next;
+                };
+                case SVMParser.DIV -> () -> {
+                    push(divide(r[arg1], r[arg2]));
+                    return next;
+                };
+                case SVMParser.DIVI -> () -> {
+                    r[arg1] = divide(r[arg1], arg2);
+                    return next;
+                };
+                case SVMParser.POPR -> () -> {
+                    r[arg1] = top();
+                    pop();
+                    return next;
+                };
+                case SVMParser.BRANCH -> () -> arg3;
+                case SVMParser.BRANCHEQ -> () -> r[arg1] == r[arg2] ? arg3 : next;
+                case SVMParser.BRANCHLESSEQ -> () -> r[arg1] <= r[arg2] ? arg3 : next;
+                case SVMParser.JUMPSUB -> () -> {
+                    r[RA] = next;
+                    return arg1;
+                };
+                case SVMParser.RETURNSUB -> () -> r[arg1];
+                case SVMParser.HALT -> () -> { //to print the result
+                    out.println("\nResult: " + r[A0] + "\n");
+                    return -1;
+                };
+                case MemoTable.MEMO -> () -> {
+                    Integer result = memo.lookup(arg1, mem, r[FP], arg2);
+                    return result != null ? memoReturn(result) : next;
+                };
+                case MemoTable.MEMO_PUT -> () -> {
+                    memo.put(arg1, mem, r[FP], arg2, r[A0]);
+                    return next;
+                };
+                case Superinstructions.LOAD_LOCAL -> {
+                    int after = ip + 3 + arg1;
+                    yield () -> {
+                        r[arg3] = mem[local(arg1, arg2)];
+                        return after;
+                    };
+                }
+                case Superinstructions.STORE_LOCAL -> {
+                    int after = ip + 3 + arg1;
+                    yield () -> {
+                        write(local(arg1, arg2), r[arg3]);
+                        return after;
+                    };
+                }
+                case Superinstructions.POP_ADD -> {
+                    int after = ip + 3;
+                    yield () -> {
+                        r[arg1] = top();
+                        pop();
+                        r[A0] = r[arg2] + r[arg3];
+                        return after;
+                    };
+                }
+                case Superinstructions.POP_SUB -> {
+                    int after = ip + 3;
+                    yield () -> {
+                        r[arg1] = top();
+                        pop();
+                        r[A0] = r[arg2] - r[arg3];
+                        return after;
+                    };
+                }
+                case Superinstructions.POP_MUL -> {
+                    int after = ip + 3;
+                    yield () -> {
+                        r[arg1] = top();
+                        pop();
+                        r[A0] = r[arg2] * r[arg3];
+                        return after;
+                    };
+                }
+                case Superinstructions.POP_DIV -> {
+                    int after = ip + 3;
+                    yield () -> {
+                        r[arg1] = top();
+                        pop();
+                        r[A0] = divide(r[arg2], r[arg3]);
+                        return after;
+                    };
+                }
+                default -> {
+                    int opcode = code[pc + OPCODE];
+                    int address = ip;
+                    yield () -> {
+                        throw new VMException("Invalid opcode " + opcode + " at " + address);
+                    };
+                }
+            };
+        }
+
+        return linked;
+    }
+}
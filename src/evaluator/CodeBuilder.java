@@ -0,0 +1,393 @@
+package evaluator;
+
+import parser.SVMParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Instruction builder used by code generation and by the assembler: instructions are appended directly in the
+ * packed image format executed by the VM, and label references are back-patched when the image is built, so that
+ * no assembly text has to be produced and parsed again. The assembly text can still be printed on demand.
+ * Every instruction takes one code slot, branches included: the target address is held in ARG3.
+ * Label names are interned to ids when first seen, so that references are resolved by array lookups.
+ */
+public class CodeBuilder {
+    private int[] code;
+    // Number of code slots emitted
+    private int size = 0;
+    // Id of every label seen, defined or referenced
+    private final HashMap<String, Integer> labelIds = new HashMap<>();
+    // Name and address of every label id, -1 while the label is not defined
+    private String[] labelNames = new String[16];
+    private int[] labelAddresses = new int[16];
+    private int labelCount = 0;
+    // Back-patch list: positions in the code array to patch with the address of a label, and the label ids
+    private int[] refPositions = new int[16];
+    private int[] refIds = new int[16];
+    private int refs = 0;
+
+    public CodeBuilder() {
+        this(64);
+    }
+
+    /**
+     * @param capacity Initial number of code slots, grown as needed.
+     */
+    public CodeBuilder(int capacity) {
+        code = new int[Math.max(capacity, 2) * ExecuteVM.INSTRUCTION_SIZE];
+    }
+
+    /**
+     * @return Number of code slots emitted.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Address of every label defined.
+     */
+    public Map<String, Integer> getLabels() {
+        LinkedHashMap<String, Integer> labels = new LinkedHashMap<>();
+
+        for (int id = 0; id < labelCount; id++)
+            if (labelAddresses[id] >= 0)
+                labels.put(labelNames[id], labelAddresses[id]);
+
+        return labels;
+    }
+
+    /**
+     * Define a label at the address of the next instruction.
+     *
+     * @param label Label name.
+     * @return This builder.
+     * @throws IllegalArgumentException If the label is already defined.
+     */
+    public CodeBuilder label(String label) {
+        define(label, size);
+
+        return this;
+    }
+
+    public CodeBuilder load(int source, int offset, int base) {
+        return emit(SVMParser.LOAD, source, offset, base);
+    }
+
+    public CodeBuilder store(int destination, int offset, int base) {
+        return emit(SVMParser.STORE, destination, offset, base);
+    }
+
+    public CodeBuilder storei(int register, int value) {
+        return emit(SVMParser.STOREI, register, value, 0);
+    }
+
+    public CodeBuilder move(int source, int destination) {
+        return emit(SVMParser.MOVE, source, destination, 0);
+    }
+
+    public CodeBuilder add(int left, int right) {
+        return emit(SVMParser.ADD, left, right, 0);
+    }
+
+    public CodeBuilder addi(int register, int value) {
+        return emit(SVMParser.ADDI, register, value, 0);
+    }
+
+    public CodeBuilder sub(int left, int right) {
+        return emit(SVMParser.SUB, left, right, 0);
+    }
+
+    public CodeBuilder subi(int register, int value) {
+        return emit(SVMParser.SUBI, register, value, 0);
+    }
+
+    public CodeBuilder mul(int left, int right) {
+        return emit(SVMParser.MUL, left, right, 0);
+    }
+
+    public CodeBuilder muli(int register, int value) {
+        return emit(SVMParser.MULI, register, value, 0);
+    }
+
+    public CodeBuilder div(int left, int right) {
+        return emit(SVMParser.DIV, left, right, 0);
+    }
+
+    public CodeBuilder divi(int register, int value) {
+        return emit(SVMParser.DIVI, register, value, 0);
+    }
+
+    public CodeBuilder push(int value) {
+        return emit(SVMParser.PUSH, value, 0, 0);
+    }
+
+    /**
+     * Push the address of a label.
+     *
+     * @param label Label name, resolved when the image is built.
+     * @return This builder.
+     */
+    public CodeBuilder push(String label) {
+        reference(size * ExecuteVM.INSTRUCTION_SIZE + ExecuteVM.ARG1, label);
+        return emit(SVMParser.PUSH, 0, 0, 0);
+    }
+
+    public CodeBuilder pushr(int register) {
+        return emit(SVMParser.PUSHR, register, 0, 0);
+    }
+
+    public CodeBuilder pop() {
+        return emit(SVMParser.POP, 0, 0, 0);
+    }
+
+    public CodeBuilder popr(int register) {
+        return emit(SVMParser.POPR, register, 0, 0);
+    }
+
+    public CodeBuilder b(String label) {
+        return branch(SVMParser.BRANCH, 0, 0, label);
+    }
+
+    public CodeBuilder beq(int left, int right, String label) {
+        return branch(SVMParser.BRANCHEQ, left, right, label);
+    }
+
+    public CodeBuilder bleq(int left, int right, String label) {
+        return branch(SVMParser.BRANCHLESSEQ, left, right, label);
+    }
+
+    public CodeBuilder jsub(String label) {
+        reference(size * ExecuteVM.INSTRUCTION_SIZE + ExecuteVM.ARG1, label);
+        return emit(SVMParser.JUMPSUB, 0, 0, 0);
+    }
+
+    public CodeBuilder rsub(int register) {
+        return emit(SVMParser.RETURNSUB, register, 0, 0);
+    }
+
+    public CodeBuilder memo(int function, int parameters) {
+        return emit(MemoTable.MEMO, function, parameters, 0);
+    }
+
+    public CodeBuilder memoPut(int function, int parameters) {
+        return emit(MemoTable.MEMO_PUT, function, parameters, 0);
+    }
+
+    public CodeBuilder halt() {
+        return emit(SVMParser.HALT, 0, 0, 0);
+    }
+
+    /**
+     * Append the code of another builder, moving its labels and label references after the code of this one.
+     *
+     * @param other Builder to append.
+     * @return This builder.
+     */
+    public CodeBuilder append(CodeBuilder other) {
+        int base = size;
+        int shift = base * ExecuteVM.INSTRUCTION_SIZE;
+
+        ensureCapacity(other.size);
+        System.arraycopy(other.code, 0, code, shift, other.size * ExecuteVM.INSTRUCTION_SIZE);
+        size += other.size;
+
+        for (int id = 0; id < other.labelCount; id++)
+            if (other.labelAddresses[id] >= 0)
+                define(other.labelNames[id], base + other.labelAddresses[id]);
+
+        for (int i = 0; i < other.refs; i++)
+            reference(shift + other.refPositions[i], other.labelNames[other.refIds[i]]);
+
+        return this;
+    }
+
+    /**
+     * Resolve the label references and produce the packed image executed by the VM.
+     *
+     * @return Packed instruction image.
+     * @throws IllegalStateException If a referenced label is not defined.
+     */
+    public int[] build() {
+        int[] image = Arrays.copyOf(code, size * ExecuteVM.INSTRUCTION_SIZE);
+
+        for (int i = 0; i < refs; i++) {
+            int address = labelAddresses[refIds[i]];
+
+            if (address < 0)
+                throw new IllegalStateException("Undefined label " + labelNames[refIds[i]]);
+
+            image[refPositions[i]] = address;
+        }
+
+        return image;
+    }
+
+    /**
+     * Print the emitted code as SVM assembly, accepted back by the assembler. Memo instructions have no assembly
+     * syntax and are printed as comments: the program assembled again computes the same results without
+     * memoization.
+     *
+     * @return Assembly text.
+     */
+    public String toAssembly() {
+        StringBuilder out = new StringBuilder();
+
+        try {
+            writeAssembly(out);
+        } catch (IOException e) {
+            // A StringBuilder never fails
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Write the emitted code as SVM assembly, one instruction at a time, so that the text is never held in memory
+     * as a whole: a writer on the file receives it as it is produced. See {@link #toAssembly()}.
+     *
+     * @param out Destination of the text.
+     * @throws IOException If the destination cannot be written.
+     */
+    public void writeAssembly(Appendable out) throws IOException {
+        // Label id referenced at every position of the code array, -1 if none
+        int[] referenced = new int[size * ExecuteVM.INSTRUCTION_SIZE];
+        // Labels defined at every address, chained by id
+        int[] firstDefined = new int[size + 1];
+        int[] nextDefined = new int[labelCount];
+
+        Arrays.fill(referenced, -1);
+        Arrays.fill(firstDefined, -1);
+
+        for (int i = 0; i < refs; i++)
+            referenced[refPositions[i]] = refIds[i];
+
+        for (int id = labelCount - 1; id >= 0; id--) {
+            if (labelAddresses[id] >= 0) {
+                nextDefined[id] = firstDefined[labelAddresses[id]];
+                firstDefined[labelAddresses[id]] = id;
+            }
+        }
+
+        for (int slot = 0; slot <= size; slot++) {
+            for (int id = firstDefined[slot]; id >= 0; id = nextDefined[id])
+                out.append(labelNames[id]).append(":\n");
+
+            if (slot == size)
+                break;
+
+            int pc = slot * ExecuteVM.INSTRUCTION_SIZE;
+            String arg1 = register(code[pc + ExecuteVM.ARG1]);
+            String arg2 = register(code[pc + ExecuteVM.ARG2]);
+
+            switch (code[pc]) {
+                case SVMParser.LOAD, SVMParser.STORE -> out.append(name(code[pc])).append(' ').append(arg1).append(' ')
+                        .append(String.valueOf(code[pc + ExecuteVM.ARG2])).append('(')
+                        .append(register(code[pc + ExecuteVM.ARG3])).append(")\n");
+                case SVMParser.STOREI, SVMParser.ADDI, SVMParser.SUBI, SVMParser.MULI, SVMParser.DIVI ->
+                        out.append(name(code[pc])).append(' ').append(arg1).append(' ')
+                                .append(String.valueOf(code[pc + ExecuteVM.ARG2])).append('\n');
+                case SVMParser.MOVE, SVMParser.ADD, SVMParser.SUB, SVMParser.MUL, SVMParser.DIV ->
+                        out.append(name(code[pc])).append(' ').append(arg1).append(' ').append(arg2).append('\n');
+                case SVMParser.PUSH, SVMParser.JUMPSUB -> {
+                    int label = referenced[pc + ExecuteVM.ARG1];
+                    out.append(name(code[pc])).append(' ')
+                            .append(label >= 0 ? labelNames[label] : String.valueOf(code[pc + ExecuteVM.ARG1]))
+                            .append('\n');
+                }
+                case SVMParser.PUSHR, SVMParser.POPR, SVMParser.RETURNSUB ->
+                        out.append(name(code[pc])).append(' ').append(arg1).append('\n');
+                case SVMParser.BRANCH, SVMParser.BRANCHEQ, SVMParser.BRANCHLESSEQ -> {
+                    out.append(name(code[pc]));
+                    if (code[pc] != SVMParser.BRANCH)
+                        out.append(' ').append(arg1).append(' ').append(arg2);
+                    out.append(' ').append(labelNames[referenced[pc + ExecuteVM.ARG3]]).append('\n');
+                }
+                case MemoTable.MEMO, MemoTable.MEMO_PUT -> out.append("// ")
+                        .append(MemoTable.name(code[pc]).toLowerCase()).append(' ')
+                        .append(String.valueOf(code[pc + ExecuteVM.ARG1])).append(' ')
+                        .append(String.valueOf(code[pc + ExecuteVM.ARG2])).append('\n');
+                default -> out.append(name(code[pc])).append('\n');
+            }
+        }
+    }
+
+    private CodeBuilder emit(int opcode, int arg1, int arg2, int arg3) {
+        ensureCapacity(1);
+
+        int pc = size * ExecuteVM.INSTRUCTION_SIZE;
+        code[pc + ExecuteVM.OPCODE] = opcode;
+        code[pc + ExecuteVM.ARG1] = arg1;
+        code[pc + ExecuteVM.ARG2] = arg2;
+        code[pc + ExecuteVM.ARG3] = arg3;
+        size++;
+
+        return this;
+    }
+
+    private CodeBuilder branch(int opcode, int left, int right, String label) {
+        reference(size * ExecuteVM.INSTRUCTION_SIZE + ExecuteVM.ARG3, label);
+        return emit(opcode, left, right, 0);
+    }
+
+    /**
+     * @return Id of a label, a new one if the label was never seen.
+     */
+    private int intern(String label) {
+        Integer id = labelIds.get(label);
+
+        if (id != null)
+            return id;
+
+        if (labelCount == labelNames.length) {
+            labelNames = Arrays.copyOf(labelNames, labelCount * 2);
+            labelAddresses = Arrays.copyOf(labelAddresses, labelCount * 2);
+        }
+
+        labelIds.put(label, labelCount);
+        labelNames[labelCount] = label;
+        labelAddresses[labelCount] = -1;
+
+        return labelCount++;
+    }
+
+    private void define(String label, int address) {
+        int id = intern(label);
+
+        if (labelAddresses[id] >= 0)
+            throw new IllegalArgumentException("Label " + label + " already defined");
+
+        labelAddresses[id] = address;
+    }
+
+    private void reference(int position, String label) {
+        if (refs == refPositions.length) {
+            refPositions = Arrays.copyOf(refPositions, refs * 2);
+            refIds = Arrays.copyOf(refIds, refs * 2);
+        }
+
+        refPositions[refs] = position;
+        refIds[refs++] = intern(label);
+    }
+
+    private void ensureCapacity(int slots) {
+        int required = (size + slots) * ExecuteVM.INSTRUCTION_SIZE;
+
+        if (required > code.length)
+            code = Arrays.copyOf(code, Math.max(required, code.length * 2));
+    }
+
+    private static String register(int register) {
+        return register >= 0 && register < ExecuteVM.REGISTERS ? ExecuteVM.REGISTER_NAMES[register] : "";
+    }
+
+    private static String name(int opcode) {
+        return SVMParser.VOCABULARY.getLiteralName(opcode).replace("'", "");
+    }
+}
@@ -0,0 +1,122 @@
+package evaluator;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * VM engine that runs the program compiled to JVM bytecode by JvmCompiler. Memory and registers are
+ * shared with the interpreter, so that execution resumes in the interpreter whenever compiled code meets
+ * a control transfer it cannot follow.
+ */
+public class CompiledVM extends ExecuteVM {
+    static final String CLASS_NAME = "evaluator/CompiledVM";
+    static final String MEMO_TABLE = "evaluator/MemoTable";
+    static final String MEMO_TABLE_TYPE = "L" + MEMO_TABLE + ";";
+    static final String DEOPTIMIZATION = "evaluator/CompiledVM$Deoptimization";
+    static final String HALT = "evaluator/CompiledVM$Halt";
+
+    /**
+     * Thrown by compiled code to continue in the interpreter from the given address.
+     */
+    static class Deoptimization extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int address;
+
+        Deoptimization(int address) {
+            super(null, null, false, false);
+            this.address = address;
+        }
+    }
+
+    /**
+     * Thrown by compiled code on halt inside a function.
+     */
+    static class Halt extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Halt() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final MethodHandle program;
+
+    private CompiledVM(int[] _code, int _memSize, MethodHandle _program) {
+        super(_code, _memSize, null);
+        program = _program;
+    }
+
+    /**
+     * Compile the program to JVM bytecode, falling back to the interpreter if it cannot be compiled, if
+     * a trace is requested or if the instructions executed are limited, since compiled code does not count them.
+     *
+     * @param _code Packed instruction image.
+     * @param _memSize VM memory size.
+     * @param _tracer Execution tracer, null when tracing is off.
+     * @param _stepLimit Maximum number of instructions executed, 0 for no limit.
+     * @return VM running the program.
+     */
+    public static ExecuteVM create(int[] _code, int _memSize, Tracer _tracer, long _stepLimit) {
+        MethodHandle program = _tracer == null && _stepLimit <= 0 ? JvmCompiler.compile(_code) : null;
+
+        return program != null ? new CompiledVM(_code, _memSize, program) : new ExecuteVM(_code, _memSize, _tracer);
+    }
+
+    /**
+     * Called by compiled code on MEMO: look the call up and, on a hit, return from it in the register file.
+     *
+     * @return True if the result was found and the frame popped, false if the function body must run.
+     */
+    static boolean memoReturn(MemoTable memo, int function, int parameters, int[] memory, int[] registers) {
+        Integer result = memo.lookup(function, memory, registers[FP], parameters);
+
+        if (result == null)
+            return false;
+
+        memoReturn(memory, registers, result);
+        return true;
+    }
+
+    @Override
+    protected void run() {
+        RuntimeException[] failure = new RuntimeException[1];
+        boolean[] halted = new boolean[1];
+        // SVM calls are JVM calls: give the compiled code a stack proportional to the VM memory
+        Thread thread = new Thread(null, () -> {
+            try {
+                program.invokeExact(memory, registers, memo);
+                halted[0] = true;
+            } catch (Halt e) {
+                halted[0] = true;
+            } catch (Deoptimization e) {
+                registers[IP] = e.address;
+            } catch (StackOverflowError e) {
+                failure[0] = new VMException("Stack overflow");
+            } catch (ArithmeticException e) {
+                // Only IDIV throws it, on division by zero
+                failure[0] = new VMException("Division by zero");
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            } catch (Throwable e) {
+                failure[0] = new RuntimeException(e);
+            }
+        }, "svm-compiled", Math.max(1L << 20, (long) memory.length * 64));
+
+        thread.start();
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VMException("Interrupted");
+        }
+
+        if (failure[0] != null)
+            throw failure[0];
+
+        if (halted[0])
+            out.println("\nResult: " + registers[A0] + "\n");
+        else
+            super.run();
+    }
+}
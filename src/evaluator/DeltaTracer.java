@@ -0,0 +1,84 @@
+package evaluator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Tracer that writes one line per step, reporting only the registers and the memory cells changed by
+ * that instruction.
+ */
+public class DeltaTracer implements Tracer {
+    private final Writer out;
+    // The trace file is closed with the tracer, the output of the VM is only flushed
+    private final boolean ownsOut;
+    private final int[] previous = new int[ExecuteVM.REGISTERS];
+    // Register file of the traced VM, read again when the VM stops to report the last changes
+    private int[] registers;
+
+    /**
+     * @param out Writer the trace is written to.
+     * @param ownsOut True if the writer is closed when the VM stops, false if it is only flushed.
+     */
+    public DeltaTracer(Writer out, boolean ownsOut) {
+        this.out = out;
+        this.ownsOut = ownsOut;
+    }
+
+    @Override
+    public void step(int step, int opcode, int[] registers) {
+        try {
+            if (this.registers == null) {
+                // First step: print the initial state of every register
+                this.registers = registers;
+                out.write("init:");
+                for (int i = 0; i < ExecuteVM.REGISTERS; i++)
+                    out.write("\t" + ExecuteVM.REGISTER_NAMES[i] + " = " + registers[i]);
+                System.arraycopy(registers, 0, previous, 0, ExecuteVM.REGISTERS);
+            } else
+                writeChanges();
+
+            out.write("\n" + step + ": " + registers[ExecuteVM.IP] + " " + Tracer.opcodeName(opcode));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(int address, int value) {
+        try {
+            out.write("\t[" + address + "] <- " + value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (registers != null)
+                writeChanges();
+
+            out.write("\n");
+
+            if (ownsOut)
+                out.close();
+            else
+                out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the registers changed since the previous step, except IP that changes at every step.
+     */
+    private void writeChanges() throws IOException {
+        for (int i = 0; i < ExecuteVM.REGISTERS; i++) {
+            if (i != ExecuteVM.IP && registers[i] != previous[i])
+                out.write("\t" + ExecuteVM.REGISTER_NAMES[i] + " = " + registers[i]);
+
+            previous[i] = registers[i];
+        }
+    }
+}
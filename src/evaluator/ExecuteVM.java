@@ -2,187 +2,398 @@ package evaluator;
 
 import parser.SVMParser;
 
+import java.io.PrintStream;
+
 public class ExecuteVM {
 
+    // Default sizes: the assembled code grows as needed, the memory size can be chosen per execution
     public static final int CODESIZE = 1000 ;
     public static final int MEMSIZE = 1000 ; //10000;
 
-    private AssemblyClass[] code;
-    private int[] memory = new int[MEMSIZE];
+    // Layout of the packed instruction image: every code slot takes INSTRUCTION_SIZE ints
+    public static final int INSTRUCTION_SIZE = 4 ;
+    public static final int OPCODE = 0 ;
+    public static final int ARG1 = 1 ;
+    public static final int ARG2 = 2 ;
+    public static final int ARG3 = 3 ;
 
-    private int ip = 0;  			// instruction pointer
-    private int sp = MEMSIZE-1 ;	// stack pointer
-    private int al = MEMSIZE-2 ; 	// access link
-    private int fp = MEMSIZE-1 ; 	// frame pointer
-    private int ra;           		// return address
-    private int a0;					// the register for values of expressions
-    private int t1;					// temporary register
-    private int t2;					// additional temporary register, just in case
+    // Register indexes used by the packed instruction image
+    public static final int IP = 0 ;
+    public static final int SP = 1 ;
+    public static final int AL = 2 ;
+    public static final int FP = 3 ;
+    public static final int RA = 4 ;
+    public static final int A0 = 5 ;
+    public static final int T1 = 6 ;
+    public static final int T2 = 7 ;
+    public static final int REGISTERS = 8 ;
+    static final String[] REGISTER_NAMES = {"IP", "SP", "AL", "FP", "RA", "A0", "T1", "T2"};
 
-    public ExecuteVM(AssemblyClass[] _code) {
-        code = _code ;
+    protected final int[] code;
+    protected final int[] memory;
+
+    // Register file addressed by the register indexes above
+    protected final int[] registers = new int[REGISTERS];
+    // Execution tracer, null when tracing is off
+    protected final Tracer tracer;
+    // Stream the result and the runtime errors of the program are printed to
+    protected PrintStream out = System.out;
+    // Results of the calls to memoized functions
+    protected MemoTable memo = new MemoTable(MemoTable.DEFAULT_CAPACITY);
+    // Instructions the program may execute before it is stopped, 0 for no limit
+    protected long stepLimit = 0;
+
+    public ExecuteVM(int[] _code) {
+        this(_code, null);
     }
 
+    public ExecuteVM(int[] _code, Tracer _tracer) {
+        this(_code, MEMSIZE, _tracer);
+    }
 
-    public void StampaMem(int _j){
-        System.out.print(_j + ": " + code[ip].getCode()) ;
-        for (int i = MEMSIZE-1; i > sp ; i--){
-            System.out.print("\t" + memory[i]) ;
-        }
-        System.out.println("\t ------" + "SP = " + sp + ", FP = " + fp + ", AL = " + al + ", RA = " + ra + ", A0 = " + a0 + ", T1 = " + t1  ) ;
+    public ExecuteVM(int[] _code, int _memSize, Tracer _tracer) {
+        code = _code ;
+        memory = new int[_memSize] ;
+        tracer = _tracer ;
+        registers[IP] = 0 ;             // instruction pointer
+        registers[SP] = _memSize-1 ;    // stack pointer
+        registers[AL] = _memSize-2 ;    // access link
+        registers[FP] = _memSize-1 ;    // frame pointer
+                                        // RA: return address
+                                        // A0: the register for values of expressions
+                                        // T1, T2: temporary registers
     }
 
-    public int read(String _strg) {
+    /**
+     * Resolve a register name to its index in the packed instruction image.
+     *
+     * @param _strg Register name.
+     * @return Register index.
+     * @throws IllegalArgumentException If the name is not a register, so that the program is rejected at load time.
+     */
+    public static int register(String _strg) {
         return switch (_strg) {
-            case "IP" -> ip;
-            case "SP" -> sp;
-            case "AL" -> al;
-            case "FP" -> fp;
-            case "RA" -> ra;
-            case "A0" -> a0;
-            case "T1" -> t1;
-            case "T2" -> t2;
-            default -> -99999; // error value
+            case "IP" -> IP;
+            case "SP" -> SP;
+            case "AL" -> AL;
+            case "FP" -> FP;
+            case "RA" -> RA;
+            case "A0" -> A0;
+            case "T1" -> T1;
+            case "T2" -> T2;
+            default -> throw new IllegalArgumentException("Unknown register " + _strg);
         };
     }
 
-    public void update(String _strg, int _val) {
-        switch (_strg) {
-            case "IP" -> ip = _val;
-            case "SP" -> sp = _val;
-            case "AL" -> al = _val;
-            case "FP" -> fp = _val;
-            case "RA" -> ra = _val;
-            case "A0" -> a0 = _val;
-            case "T1" -> t1 = _val;
-            case "T2" -> t2 = _val;
-        }
+    public int read(int _reg) {
+        return registers[_reg];
+    }
+
+    /**
+     * Redirect the output of the program, e.g. to collect the output of programs run concurrently.
+     *
+     * @param _out Stream the result and the runtime errors are printed to.
+     */
+    public void setOutput(PrintStream _out) {
+        out = _out;
+    }
+
+    /**
+     * Replace the memo table, e.g. to choose its capacity.
+     *
+     * @param _memo Memo table used by the memoized functions.
+     */
+    public void setMemoTable(MemoTable _memo) {
+        memo = _memo;
+    }
+
+    /**
+     * Stop the program with a runtime error after the given number of instructions, e.g. so that a
+     * program that never halts does not hold the VM forever.
+     *
+     * @param _stepLimit Maximum number of instructions executed, 0 for no limit.
+     */
+    public void setStepLimit(long _stepLimit) {
+        stepLimit = _stepLimit;
+    }
+
+    /**
+     * @return Instructions left to the program before it is stopped, Long.MAX_VALUE with no limit.
+     */
+    protected long stepBudget() {
+        return stepLimit > 0 ? stepLimit : Long.MAX_VALUE;
+    }
+
+    public MemoTable getMemoTable() {
+        return memo;
+    }
+
+    public void update(int _reg, int _val) {
+        registers[_reg] = _val;
     }
 
     public void cpu() {
+        try {
+            run();
+        } catch (VMException e) {
+            out.println("\nError: " + e.getMessage());
+        } finally {
+            // Dump or flush the trace both on halt and on error
+            if (tracer != null)
+                tracer.close();
+        }
+    }
+
+    /**
+     * Interpreter loop: fetch the instruction at IP and dispatch it on its opcode until halt.
+     */
+    protected void run() {
         int j = 0 ;
+        int[] r = registers ;
+        long steps = stepBudget() ;
 
         while ( true ) {
-            StampaMem(j) ;
+            if (--steps < 0)
+                throw new VMException("Step limit exceeded") ;
+            int pc = r[IP] * INSTRUCTION_SIZE ; // fetch
+            if (tracer != null)
+                tracer.step(j, code[pc + OPCODE], r) ;
             j=j+1 ;
-            AssemblyClass bytecode = code[ip] ; // fetch
+            int arg1 = code[pc + ARG1] ;
+            int arg2 = code[pc + ARG2] ;
+            int arg3 = code[pc + ARG3] ;
             int tmp ;
-            int address;
-            switch (bytecode.getCode()) {
+            switch (code[pc + OPCODE]) {
                 case SVMParser.PUSH -> {
-                    push(Integer.parseInt(bytecode.getArg1()));
-                    ip = ip + 1;
+                    push(arg1);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.PUSHR -> {
-                    push(read(bytecode.getArg1()));
-                    ip = ip + 1;
+                    push(r[arg1]);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.POP -> {
                     pop();
-                    ip = ip + 1;
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.LOAD -> {
-                    tmp = read(bytecode.getArg3()) + Integer.parseInt(bytecode.getArg2());
-                    if ((tmp < 0) || (tmp >= MEMSIZE)) {
-                        System.out.println("\nError: Null pointer exception");
-                        return;
+                    tmp = r[arg3] + arg2;
+                    if ((tmp < 0) || (tmp >= memory.length)) {
+                        throw new VMException("Null pointer exception");
                     } else {
-                        memory[tmp] = read(bytecode.getArg1());
-                        ip = ip + 1;
+                        write(tmp, r[arg1]);
+                        r[IP] = r[IP] + 1;
                     }
                 }
                 case SVMParser.STOREI -> {
-                    update(bytecode.getArg1(), Integer.parseInt(bytecode.getArg2()));
-                    ip = ip + 1;
+                    r[arg1] = arg2;
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.STORE -> {
-                    tmp = read(bytecode.getArg3()) + Integer.parseInt(bytecode.getArg2());
-                    if ((tmp < 0) || (tmp >= MEMSIZE)) {
-                        System.out.println("\nError: Null pointer exception");
-                        return;
+                    tmp = r[arg3] + arg2;
+                    if ((tmp < 0) || (tmp >= memory.length)) {
+                        throw new VMException("Null pointer exception");
                     } else {
-                        update(bytecode.getArg1(), memory[tmp]);
-                        ip = ip + 1;
+                        r[arg1] = memory[tmp];
+                        r[IP] = r[IP] + 1;
                     }
                 }
                 case SVMParser.MOVE -> {
-                    update(bytecode.getArg2(), read(bytecode.getArg1()));
-                    ip = ip + 1;
+                    r[arg2] = r[arg1];
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.ADD -> {
-                    push(read(bytecode.getArg1()) + read(bytecode.getArg2()));
-                    ip = ip + 1;
+                    push(r[arg1] + r[arg2]);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.ADDI -> {
-                    update(bytecode.getArg1(), read(bytecode.getArg1()) + Integer.parseInt(bytecode.getArg2()));
-                    ip = ip + 1;
+                    r[arg1] = r[arg1] + arg2;
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.SUB -> {
-                    push(read(bytecode.getArg1()) - read(bytecode.getArg2()));
-                    ip = ip + 1;
+                    push(r[arg1] - r[arg2]);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.SUBI -> {
-                    update(bytecode.getArg1(), read(bytecode.getArg1()) - Integer.parseInt(bytecode.getArg2()));
-                    ip = ip + 1;
+                    r[arg1] = r[arg1] - arg2;
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.MUL -> {
-                    push(read(bytecode.getArg1()) * read(bytecode.getArg2()));
-                    ip = ip + 1;
+                    push(r[arg1] * r[arg2]);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.MULI -> {
-                    update(bytecode.getArg1(), read(bytecode.getArg1()) * Integer.parseInt(bytecode.getArg2()));
-                    ip = ip + 1;
+                    r[arg1] = r[arg1] * arg2;
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.DIV -> {
-                    push(read(bytecode.getArg1()) / read(bytecode.getArg2()));
-                    ip = ip + 1;
+                    push(divide(r[arg1], r[arg2]));
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.DIVI -> {
-                    update(bytecode.getArg1(), read(bytecode.getArg1()) / Integer.parseInt(bytecode.getArg2()));
-                    ip = ip + 1;
+                    r[arg1] = divide(r[arg1], arg2);
+                    r[IP] = r[IP] + 1;
                 }
                 case SVMParser.POPR -> { //
-                    update(bytecode.getArg1(), memory[sp + 1]);
+                    r[arg1] = top();
                     pop();
-                    ip = ip + 1;
-                }
-                case SVMParser.BRANCH -> {
-                    address = ip + 1;
-                    ip = code[address].getCode();
+                    r[IP] = r[IP] + 1;
                 }
+                // The branch target is stored in ARG3
+                case SVMParser.BRANCH -> r[IP] = arg3;
                 case SVMParser.BRANCHEQ -> { //
-                    if (read(bytecode.getArg1()) == read(bytecode.getArg2())) {
-                        address = ip + 1;
-                        ip = code[address].getCode();
-                    } else ip = ip + 2;
+                    if (r[arg1] == r[arg2]) {
+                        r[IP] = arg3;
+                    } else r[IP] = r[IP] + 1;
                 }
                 case SVMParser.BRANCHLESSEQ -> {
-                    if (read(bytecode.getArg1()) <= read(bytecode.getArg2())) {
-                        address = ip + 1;
-                        ip = code[address].getCode();
-                    } else ip = ip + 2;
+                    if (r[arg1] <= r[arg2]) {
+                        r[IP] = arg3;
+                    } else r[IP] = r[IP] + 1;
                 }
                 case SVMParser.JUMPSUB -> {
-                    ra = ip + 1;
-                    address = ip;
-                    ip = Integer.parseInt(code[address].getArg1());
+                    r[RA] = r[IP] + 1;
+                    r[IP] = arg1;
                 }
-                case SVMParser.RETURNSUB -> ip = read(bytecode.getArg1());
+                case SVMParser.RETURNSUB -> r[IP] = r[arg1];
                 case SVMParser.HALT -> { //to print the result
-                    System.out.println("\nResult: " + a0 + "\n");
+                    out.println("\nResult: " + r[A0] + "\n");
                     return;
                 }
+                case MemoTable.MEMO -> {
+                    Integer result = memo.lookup(arg1, memory, r[FP], arg2);
+                    r[IP] = result != null ? memoReturn(result) : r[IP] + 1;
+                }
+                case MemoTable.MEMO_PUT -> {
+                    memo.put(arg1, memory, r[FP], arg2, r[A0]);
+                    r[IP] = r[IP] + 1;
+                }
+                case Superinstructions.LOAD_LOCAL -> {
+                    tmp = local(arg1, arg2);
+                    r[arg3] = memory[tmp];
+                    r[IP] = r[IP] + 3 + arg1;
+                }
+                case Superinstructions.STORE_LOCAL -> {
+                    tmp = local(arg1, arg2);
+                    write(tmp, r[arg3]);
+                    r[IP] = r[IP] + 3 + arg1;
+                }
+                case Superinstructions.POP_ADD -> {
+                    r[arg1] = top();
+                    pop();
+                    r[A0] = r[arg2] + r[arg3];
+                    r[IP] = r[IP] + 3;
+                }
+                case Superinstructions.POP_SUB -> {
+                    r[arg1] = top();
+                    pop();
+                    r[A0] = r[arg2] - r[arg3];
+                    r[IP] = r[IP] + 3;
+                }
+                case Superinstructions.POP_MUL -> {
+                    r[arg1] = top();
+                    pop();
+                    r[A0] = r[arg2] * r[arg3];
+                    r[IP] = r[IP] + 3;
+                }
+                case Superinstructions.POP_DIV -> {
+                    r[arg1] = top();
+                    pop();
+                    r[A0] = divide(r[arg2], r[arg3]);
+                    r[IP] = r[IP] + 3;
+                }
+                default -> throw new VMException("Invalid opcode " + code[pc + OPCODE] + " at " + r[IP]);
             }
         }
     }
 
-    private void pop() {
-        sp = sp+1 ;
+    /**
+     * Follow the access link chain from AL and compute the address of a variable, as the fused
+     * move AL T1 / store T1 0(T1)* / subi T1 offset sequence does. T1 is left holding the address.
+     *
+     * @param depth Number of access links to follow.
+     * @param offset Variable offset.
+     * @return Variable address.
+     */
+    protected int local(int depth, int offset) {
+        int address = registers[AL];
+
+        for (int d = 0; d < depth; d++) {
+            if ((address < 0) || (address >= memory.length))
+                throw new VMException("Null pointer exception");
+            address = memory[address];
+        }
+
+        address = address - offset;
+        registers[T1] = address;
+
+        if ((address < 0) || (address >= memory.length))
+            throw new VMException("Null pointer exception");
+
+        return address;
+    }
+
+    /**
+     * Return from a memoized function with the result found in the memo table, as its epilogue does: the
+     * frame of the call is popped and FP and AL are restored from the saved frame pointer.
+     *
+     * @param result Result of the call.
+     * @return Return address.
+     */
+    protected int memoReturn(int result) {
+        return memoReturn(memory, registers, result);
+    }
+
+    protected static int memoReturn(int[] memory, int[] r, int result) {
+        r[A0] = result;
+        r[SP] = r[FP];
+        r[FP] = memory[r[FP]];
+        r[AL] = r[FP] - 1;
+
+        return r[RA];
+    }
+
+    /**
+     * Integer division, trapping the division by zero.
+     *
+     * @param dividend Dividend.
+     * @param divisor Divisor.
+     * @return Quotient, truncated toward zero.
+     */
+    protected static int divide(int dividend, int divisor) {
+        if (divisor == 0)
+            throw new VMException("Division by zero");
+
+        return dividend / divisor;
+    }
+
+    /**
+     * @return Value on top of the stack, checking that the stack is not empty.
+     */
+    protected int top() {
+        int address = registers[SP] + 1;
+
+        if ((address < 0) || (address >= memory.length))
+            throw new VMException("Stack underflow");
+
+        return memory[address];
+    }
+
+    protected void pop() {
+        registers[SP] = registers[SP]+1 ;
+    }
+
+    protected void push(int v) {
+        if (registers[SP] < 0)
+            throw new VMException("Stack overflow");
+        write(registers[SP], v);
+        registers[SP] = registers[SP]-1 ;
     }
 
-    private void push(int v) {
-        memory[sp] = v;
-        sp = sp-1 ;
+    protected void write(int address, int v) {
+        if (tracer != null)
+            tracer.write(address, v);
+        memory[address] = v;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,634 @@
+package evaluator;
+
+import parser.SVMParser;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.TreeSet;
+
+/**
+ * Ahead-of-time compiler from the packed SVM image to a JVM class. The main code and every jsub target
+ * (i.e. every SimpLanPlus function) become a static method taking the VM memory and register file;
+ * registers are kept in JVM locals and written back to the register file around calls and returns.
+ * The class is written with the JDK only and loaded as a hidden class.
+ */
+public class JvmCompiler {
+    private static final String CLASS_NAME = "evaluator/SVMProgram";
+    private static final String METHOD_DESCRIPTOR = "([I[I" + CompiledVM.MEMO_TABLE_TYPE + ")V";
+    private static final String ENTRY_METHOD = "run";
+
+    // JVM locals: memory, register file, memo table, registers SP..T2 and a temporary
+    private static final int MEM = 0;
+    private static final int REGS = 1;
+    private static final int MEMO = 2;
+    private static final int TMP = MEMO + ExecuteVM.REGISTERS;
+    private static final int MAX_LOCALS = TMP + 1;
+    private static final int MAX_STACK = 6;
+
+    // Branch targets not bound to an instruction
+    private static final int NULL_POINTER = -1;
+    private static final int STACK_OVERFLOW = -2;
+    private static final int STACK_UNDERFLOW = -3;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int IALOAD = 0x2e;
+    private static final int ISTORE = 0x36;
+    private static final int IASTORE = 0x4f;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6c;
+    private static final int IINC = 0x84;
+    private static final int IFEQ = 0x99;
+    private static final int IFLT = 0x9b;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IF_ICMPGE = 0xa2;
+    private static final int IF_ICMPLE = 0xa4;
+    private static final int GOTO = 0xa7;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int ARRAYLENGTH = 0xbe;
+    private static final int ATHROW = 0xbf;
+
+    /**
+     * Raised when the program uses something the compiler does not support.
+     */
+    private static class UnsupportedCodeException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedCodeException(String message) {
+            super(message);
+        }
+    }
+
+    private final int[] code;
+    private final int slots;
+    private final ClassFileWriter writer = new ClassFileWriter(CLASS_NAME, "java/lang/Object");
+
+    private JvmCompiler(int[] code) {
+        this.code = code;
+        this.slots = code.length / ExecuteVM.INSTRUCTION_SIZE;
+    }
+
+    /**
+     * Compile the packed image to a JVM class.
+     *
+     * @param code Packed instruction image.
+     * @return Handle of the entry method (int[] memory, int[] registers, MemoTable memo), null if the program
+     * cannot be compiled.
+     */
+    public static MethodHandle compile(int[] code) {
+        try {
+            byte[] bytes = new JvmCompiler(code).generate();
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+
+            return lookup.findStatic(lookup.lookupClass(), ENTRY_METHOD,
+                    MethodType.methodType(void.class, int[].class, int[].class, MemoTable.class));
+        } catch (UnsupportedCodeException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private byte[] generate() throws UnsupportedCodeException {
+        // The main code is the class entry point, every jsub target becomes a method compiled once
+        TreeSet<Integer> functions = new TreeSet<>();
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        ArrayList<Integer> callees = new ArrayList<>();
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, ENTRY_METHOD, METHOD_DESCRIPTOR,
+                method(0, true, callees), MAX_STACK, MAX_LOCALS);
+
+        while (true) {
+            for (int callee : callees)
+                if (functions.add(callee))
+                    pending.add(callee);
+
+            if (pending.isEmpty())
+                break;
+
+            int entry = pending.poll();
+            callees.clear();
+            writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC, methodName(entry),
+                    METHOD_DESCRIPTOR, method(entry, false, callees), MAX_STACK, MAX_LOCALS);
+        }
+
+        return writer.toByteArray();
+    }
+
+    private static String methodName(int entry) {
+        return "f" + entry;
+    }
+
+    /**
+     * Compile the code reachable from an entry point without following calls.
+     *
+     * @param entry Address of the first instruction.
+     * @param main True for the main code, false for a function.
+     * @param callees Filled with the jsub targets found.
+     * @return Method bytecode.
+     */
+    private byte[] method(int entry, boolean main, ArrayList<Integer> callees) throws UnsupportedCodeException {
+        boolean[] reachable = reach(entry);
+        Bytecode b = new Bytecode();
+        int[] offsets = new int[slots];
+
+        // Load the registers from the register file
+        for (int reg = ExecuteVM.SP; reg < ExecuteVM.REGISTERS; reg++) {
+            b.op(ALOAD, REGS);
+            b.pushInt(reg);
+            b.op(IALOAD);
+            b.op(ISTORE, local(reg));
+        }
+
+        // The entry is not necessarily the lowest reachable address
+        if (entry != firstReachable(reachable))
+            b.branch(GOTO, entry);
+
+        for (int ip = 0; ip < slots; ip++) {
+            if (!reachable[ip])
+                continue;
+
+            offsets[ip] = b.size();
+            instruction(b, ip, main, callees);
+
+            // Superinstructions continue after their last slot, which is not always the next one compiled
+            int next = ip + Superinstructions.length(code, ip);
+            if (next != ip + 1 && nextReachable(reachable, ip) != next)
+                b.branch(GOTO, next);
+        }
+
+        int nullPointer = b.size();
+        b.trap("Null pointer exception");
+        int stackOverflow = b.size();
+        b.trap("Stack overflow");
+        int stackUnderflow = b.size();
+        b.trap("Stack underflow");
+
+        return b.link(offsets, nullPointer, stackOverflow, stackUnderflow);
+    }
+
+    private int nextReachable(boolean[] reachable, int ip) {
+        for (int next = ip + 1; next < slots; next++)
+            if (reachable[next])
+                return next;
+
+        return -1;
+    }
+
+    private int firstReachable(boolean[] reachable) {
+        for (int ip = 0; ip < slots; ip++)
+            if (reachable[ip])
+                return ip;
+
+        return -1;
+    }
+
+    /**
+     * Mark the instructions reachable from an entry point, stepping over calls.
+     */
+    private boolean[] reach(int entry) throws UnsupportedCodeException {
+        boolean[] reachable = new boolean[slots];
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        pending.add(entry);
+
+        while (!pending.isEmpty()) {
+            int ip = pending.poll();
+
+            if (ip < 0 || ip >= slots)
+                throw new UnsupportedCodeException("Jump outside the code at " + ip);
+
+            if (reachable[ip])
+                continue;
+
+            reachable[ip] = true;
+            int opcode = opcode(ip);
+
+            switch (opcode) {
+                case SVMParser.BRANCH -> pending.add(target(ip));
+                case SVMParser.BRANCHEQ, SVMParser.BRANCHLESSEQ -> {
+                    pending.add(target(ip));
+                    pending.add(ip + 1);
+                }
+                case SVMParser.RETURNSUB, SVMParser.HALT -> {
+                }
+                default -> pending.add(ip + Superinstructions.length(code, ip));
+            }
+        }
+
+        return reachable;
+    }
+
+    private void instruction(Bytecode b, int ip, boolean main, ArrayList<Integer> callees) throws UnsupportedCodeException {
+        int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+        int arg1 = code[pc + ExecuteVM.ARG1];
+        int arg2 = code[pc + ExecuteVM.ARG2];
+        int arg3 = code[pc + ExecuteVM.ARG3];
+
+        switch (opcode(ip)) {
+            case SVMParser.PUSH -> {
+                b.pushInt(arg1);
+                push(b);
+            }
+            case SVMParser.PUSHR -> {
+                b.op(ILOAD, operand(arg1));
+                push(b);
+            }
+            case SVMParser.POP -> b.iinc(local(ExecuteVM.SP), 1);
+            case SVMParser.LOAD -> {
+                address(b, arg3, arg2);
+                b.op(ALOAD, MEM);
+                b.op(ILOAD, TMP);
+                b.op(ILOAD, operand(arg1));
+                b.op(IASTORE);
+            }
+            case SVMParser.STORE -> {
+                address(b, arg3, arg2);
+                b.op(ALOAD, MEM);
+                b.op(ILOAD, TMP);
+                b.op(IALOAD);
+                b.op(ISTORE, operand(arg1));
+            }
+            case SVMParser.STOREI -> {
+                b.pushInt(arg2);
+                b.op(ISTORE, operand(arg1));
+            }
+            case SVMParser.MOVE -> {
+                b.op(ILOAD, operand(arg1));
+                b.op(ISTORE, operand(arg2));
+            }
+            case SVMParser.ADD, SVMParser.SUB, SVMParser.MUL, SVMParser.DIV -> {
+                b.op(ILOAD, operand(arg1));
+                b.op(ILOAD, operand(arg2));
+                b.op(arithmetic(opcode(ip)));
+                push(b);
+            }
+            case SVMParser.ADDI, SVMParser.SUBI, SVMParser.MULI, SVMParser.DIVI -> {
+                b.op(ILOAD, operand(arg1));
+                b.pushInt(arg2);
+                b.op(arithmetic(opcode(ip)));
+                b.op(ISTORE, operand(arg1));
+            }
+            case SVMParser.POPR -> {
+                top(b);
+                b.op(ISTORE, operand(arg1));
+                b.iinc(local(ExecuteVM.SP), 1);
+            }
+            case SVMParser.BRANCH -> b.branch(GOTO, target(ip));
+            case SVMParser.BRANCHEQ, SVMParser.BRANCHLESSEQ -> {
+                b.op(ILOAD, operand(arg1));
+                b.op(ILOAD, operand(arg2));
+                b.branch(opcode(ip) == SVMParser.BRANCHEQ ? IF_ICMPEQ : IF_ICMPLE, target(ip));
+            }
+            case SVMParser.JUMPSUB -> {
+                if (arg1 <= 0 || arg1 >= slots)
+                    throw new UnsupportedCodeException("Call outside the code at " + ip);
+
+                callees.add(arg1);
+                b.pushInt(ip + 1);
+                b.op(ISTORE, local(ExecuteVM.RA));
+                storeRegisters(b);
+                b.op(ALOAD, MEM);
+                b.op(ALOAD, REGS);
+                b.op(ALOAD, MEMO);
+                b.invoke(INVOKESTATIC, writer.methodRef(CLASS_NAME, methodName(arg1), METHOD_DESCRIPTOR));
+                loadRegisters(b);
+                // The callee returned through its rsub: continue here only if it jumped back to the caller
+                b.op(ALOAD, REGS);
+                b.pushInt(ExecuteVM.IP);
+                b.op(IALOAD);
+                b.pushInt(ip + 1);
+                b.branch(IF_ICMPEQ, ip + 1);
+                b.op(ALOAD, REGS);
+                b.pushInt(ExecuteVM.IP);
+                b.op(IALOAD);
+                deoptimize(b);
+            }
+            case SVMParser.RETURNSUB -> {
+                b.op(ILOAD, operand(arg1));
+                storeRegisters(b);
+                returnTo(b, main);
+            }
+            case SVMParser.HALT -> {
+                storeRegisters(b);
+
+                if (main)
+                    b.op(RETURN);
+                else {
+                    b.invoke(NEW, writer.classRef(CompiledVM.HALT));
+                    b.op(DUP);
+                    b.invoke(INVOKESPECIAL, writer.methodRef(CompiledVM.HALT, "<init>", "()V"));
+                    b.op(ATHROW);
+                }
+            }
+            case Superinstructions.LOAD_LOCAL -> {
+                local(b, arg1, arg2);
+                b.op(ALOAD, MEM);
+                b.op(ILOAD, TMP);
+                b.op(IALOAD);
+                b.op(ISTORE, operand(arg3));
+            }
+            case Superinstructions.STORE_LOCAL -> {
+                local(b, arg1, arg2);
+                b.op(ALOAD, MEM);
+                b.op(ILOAD, TMP);
+                b.op(ILOAD, operand(arg3));
+                b.op(IASTORE);
+            }
+            case Superinstructions.POP_ADD, Superinstructions.POP_SUB, Superinstructions.POP_MUL,
+                    Superinstructions.POP_DIV -> {
+                top(b);
+                b.op(ISTORE, operand(arg1));
+                b.iinc(local(ExecuteVM.SP), 1);
+                b.op(ILOAD, operand(arg2));
+                b.op(ILOAD, operand(arg3));
+                b.op(arithmetic(opcode(ip)));
+                b.op(ISTORE, local(ExecuteVM.A0));
+            }
+            // The memo table lives in the interpreter
+            case MemoTable.MEMO -> {
+                // On a hit the helper pops the frame in the register file: return as the epilogue would
+                storeRegisters(b);
+                b.op(ALOAD, MEMO);
+                b.pushInt(arg1);
+                b.pushInt(arg2);
+                b.op(ALOAD, MEM);
+                b.op(ALOAD, REGS);
+                b.invoke(INVOKESTATIC, writer.methodRef(CompiledVM.CLASS_NAME, "memoReturn",
+                        "(" + CompiledVM.MEMO_TABLE_TYPE + "II[I[I)Z"));
+                b.branch(IFEQ, ip + 1);
+                loadRegisters(b);
+                b.op(ILOAD, local(ExecuteVM.RA));
+                returnTo(b, main);
+            }
+            case MemoTable.MEMO_PUT -> {
+                b.op(ALOAD, MEMO);
+                b.pushInt(arg1);
+                b.op(ALOAD, MEM);
+                b.op(ILOAD, local(ExecuteVM.FP));
+                b.pushInt(arg2);
+                b.op(ILOAD, local(ExecuteVM.A0));
+                b.invoke(INVOKEVIRTUAL, writer.methodRef(CompiledVM.MEMO_TABLE, "put", "(I[IIII)V"));
+            }
+            default -> throw new UnsupportedCodeException("Unknown opcode at " + ip);
+        }
+    }
+
+    /**
+     * Compute memory address REG + offset in TMP, checking its bounds.
+     */
+    private void address(Bytecode b, int reg, int offset) throws UnsupportedCodeException {
+        b.op(ILOAD, operand(reg));
+        b.pushInt(offset);
+        b.op(IADD);
+        b.op(ISTORE, TMP);
+        checkAddress(b);
+    }
+
+    /**
+     * Compute in TMP and T1 the address of the variable at the given depth and offset from AL.
+     */
+    private void local(Bytecode b, int depth, int offset) {
+        b.op(ILOAD, local(ExecuteVM.AL));
+        b.op(ISTORE, TMP);
+
+        for (int d = 0; d < depth; d++) {
+            checkAddress(b);
+            b.op(ALOAD, MEM);
+            b.op(ILOAD, TMP);
+            b.op(IALOAD);
+            b.op(ISTORE, TMP);
+        }
+
+        b.op(ILOAD, TMP);
+        b.pushInt(offset);
+        b.op(ISUB);
+        b.op(ISTORE, TMP);
+        b.op(ILOAD, TMP);
+        b.op(ISTORE, local(ExecuteVM.T1));
+        checkAddress(b);
+    }
+
+    /**
+     * Trap with a null pointer exception if TMP is not a memory address.
+     */
+    private void checkAddress(Bytecode b) {
+        b.op(ILOAD, TMP);
+        b.branch(IFLT, NULL_POINTER);
+        b.op(ILOAD, TMP);
+        b.op(ALOAD, MEM);
+        b.op(ARRAYLENGTH);
+        b.branch(IF_ICMPGE, NULL_POINTER);
+    }
+
+    /**
+     * Push on the JVM stack the value on top of the VM stack, trapping if the VM stack is empty.
+     */
+    private void top(Bytecode b) {
+        b.op(ILOAD, local(ExecuteVM.SP));
+        b.pushInt(1);
+        b.op(IADD);
+        b.op(ISTORE, TMP);
+        b.op(ILOAD, TMP);
+        b.branch(IFLT, STACK_UNDERFLOW);
+        b.op(ILOAD, TMP);
+        b.op(ALOAD, MEM);
+        b.op(ARRAYLENGTH);
+        b.branch(IF_ICMPGE, STACK_UNDERFLOW);
+        b.op(ALOAD, MEM);
+        b.op(ILOAD, TMP);
+        b.op(IALOAD);
+    }
+
+    /**
+     * Push the value on top of the JVM stack on the VM stack.
+     */
+    private void push(Bytecode b) {
+        b.op(ISTORE, TMP);
+        b.op(ILOAD, local(ExecuteVM.SP));
+        b.branch(IFLT, STACK_OVERFLOW);
+        b.op(ALOAD, MEM);
+        b.op(ILOAD, local(ExecuteVM.SP));
+        b.op(ILOAD, TMP);
+        b.op(IASTORE);
+        b.iinc(local(ExecuteVM.SP), -1);
+    }
+
+    /**
+     * Leave compiled code and resume the interpreter at the address on top of the JVM stack.
+     */
+    private void deoptimize(Bytecode b) {
+        b.op(ISTORE, TMP);
+        b.invoke(NEW, writer.classRef(CompiledVM.DEOPTIMIZATION));
+        b.op(DUP);
+        b.op(ILOAD, TMP);
+        b.invoke(INVOKESPECIAL, writer.methodRef(CompiledVM.DEOPTIMIZATION, "<init>", "(I)V"));
+        b.op(ATHROW);
+    }
+
+    /**
+     * Return to the address on top of the JVM stack, which the caller continues from, or leave compiled
+     * code if there is no compiled caller.
+     */
+    private void returnTo(Bytecode b, boolean main) {
+        if (main)
+            deoptimize(b);
+        else {
+            b.op(ISTORE, TMP);
+            b.op(ALOAD, REGS);
+            b.pushInt(ExecuteVM.IP);
+            b.op(ILOAD, TMP);
+            b.op(IASTORE);
+            b.op(RETURN);
+        }
+    }
+
+    private void storeRegisters(Bytecode b) {
+        for (int reg = ExecuteVM.SP; reg < ExecuteVM.REGISTERS; reg++) {
+            b.op(ALOAD, REGS);
+            b.pushInt(reg);
+            b.op(ILOAD, local(reg));
+            b.op(IASTORE);
+        }
+    }
+
+    private void loadRegisters(Bytecode b) {
+        for (int reg = ExecuteVM.SP; reg < ExecuteVM.REGISTERS; reg++) {
+            b.op(ALOAD, REGS);
+            b.pushInt(reg);
+            b.op(IALOAD);
+            b.op(ISTORE, local(reg));
+        }
+    }
+
+    /**
+     * @return JVM local holding an operand register.
+     */
+    private int operand(int reg) throws UnsupportedCodeException {
+        // IP is not an operand register of the compiled code
+        if (reg <= ExecuteVM.IP || reg >= ExecuteVM.REGISTERS)
+            throw new UnsupportedCodeException("Unsupported register " + reg);
+
+        return local(reg);
+    }
+
+    /**
+     * @return JVM local holding a register.
+     */
+    private static int local(int reg) {
+        return MEMO + reg;
+    }
+
+    private static int arithmetic(int opcode) {
+        return switch (opcode) {
+            case SVMParser.ADD, SVMParser.ADDI, Superinstructions.POP_ADD -> IADD;
+            case SVMParser.SUB, SVMParser.SUBI, Superinstructions.POP_SUB -> ISUB;
+            case SVMParser.MUL, SVMParser.MULI, Superinstructions.POP_MUL -> IMUL;
+            default -> IDIV;
+        };
+    }
+
+    private int opcode(int ip) {
+        return code[ip * ExecuteVM.INSTRUCTION_SIZE + ExecuteVM.OPCODE];
+    }
+
+    private int target(int ip) {
+        return code[ip * ExecuteVM.INSTRUCTION_SIZE + ExecuteVM.ARG3];
+    }
+
+    /**
+     * Bytecode buffer with branches to instruction addresses, patched once the method is complete.
+     */
+    private class Bytecode {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Pairs of (branch opcode position, target address)
+        private final ArrayList<int[]> branches = new ArrayList<>();
+
+        int size() {
+            return out.size();
+        }
+
+        void op(int opcode) {
+            out.write(opcode);
+        }
+
+        void op(int opcode, int index) {
+            out.write(opcode);
+            out.write(index);
+        }
+
+        void invoke(int opcode, int poolIndex) {
+            out.write(opcode);
+            out.write(poolIndex >> 8);
+            out.write(poolIndex);
+        }
+
+        void iinc(int local, int value) {
+            out.write(IINC);
+            out.write(local);
+            out.write(value);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5)
+                out.write(ICONST_0 + value);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+                op(BIPUSH, value & 0xff);
+            else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                out.write(SIPUSH);
+                out.write(value >> 8);
+                out.write(value);
+            } else
+                invoke(LDC_W, writer.integer(value));
+        }
+
+        void branch(int opcode, int target) {
+            branches.add(new int[]{out.size(), target});
+            out.write(opcode);
+            out.write(0);
+            out.write(0);
+        }
+
+        void trap(String message) {
+            invoke(NEW, writer.classRef("evaluator/VMException"));
+            op(DUP);
+            invoke(LDC_W, writer.string(message));
+            invoke(INVOKESPECIAL, writer.methodRef("evaluator/VMException", "<init>", "(Ljava/lang/String;)V"));
+            op(ATHROW);
+        }
+
+        byte[] link(int[] offsets, int nullPointer, int stackOverflow, int stackUnderflow)
+                throws UnsupportedCodeException {
+            byte[] bytes = out.toByteArray();
+
+            // Branch offsets are signed 16 bit values
+            if (bytes.length > Short.MAX_VALUE)
+                throw new UnsupportedCodeException("Method too large");
+
+            for (int[] branch : branches) {
+                int destination = switch (branch[1]) {
+                    case NULL_POINTER -> nullPointer;
+                    case STACK_OVERFLOW -> stackOverflow;
+                    case STACK_UNDERFLOW -> stackUnderflow;
+                    default -> offsets[branch[1]];
+                };
+                int offset = destination - branch[0];
+                bytes[branch[0] + 1] = (byte) (offset >> 8);
+                bytes[branch[0] + 2] = (byte) offset;
+            }
+
+            return bytes;
+        }
+    }
+}
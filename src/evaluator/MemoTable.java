@@ -0,0 +1,149 @@
+package evaluator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memo table of the calls to pure functions, shared by all the memoized functions of a program and bounded:
+ * when it is full, the least recently used result is evicted.
+ * A memoized function starts with MEMO and stores its result with MEMO_PUT before its epilogue. The arguments
+ * are read from the frame of the call, below the saved frame pointer and the access link.
+ */
+public class MemoTable {
+    /**
+     * Look up the call in the table: on a hit A0 <- result and the function returns, skipping its body, as its
+     * epilogue would. ARG1 = function, ARG2 = number of parameters.
+     */
+    public static final int MEMO = 110;
+    /**
+     * Store A0 as the result of the call. ARG1 = function, ARG2 = number of parameters.
+     */
+    public static final int MEMO_PUT = 111;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Integer> results;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Function and arguments of a call.
+     */
+    private static final class Key {
+        private final int function;
+        private final int[] arguments;
+        private final int hash;
+
+        Key(int function, int[] arguments) {
+            this.function = function;
+            this.arguments = arguments;
+            this.hash = 31 * function + Arrays.hashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && function == key.function && Arrays.equals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * @param capacity Maximum number of results kept.
+     */
+    public MemoTable(int capacity) {
+        this.capacity = capacity;
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                if (size() <= MemoTable.this.capacity)
+                    return false;
+
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param opcode Opcode.
+     * @return Printable name, null if the opcode is not a memo instruction.
+     */
+    public static String name(int opcode) {
+        return switch (opcode) {
+            case MEMO -> "MEMO";
+            case MEMO_PUT -> "MEMO_PUT";
+            default -> null;
+        };
+    }
+
+    private static Key key(int function, int[] memory, int frame, int parameters) {
+        if (frame - 1 - parameters < 0 || frame >= memory.length)
+            throw new VMException("Null pointer exception");
+
+        int[] arguments = new int[parameters];
+
+        for (int i = 0; i < parameters; i++)
+            arguments[i] = memory[frame - 2 - i];
+
+        return new Key(function, arguments);
+    }
+
+    /**
+     * Look up the result of a call, marking it as recently used.
+     *
+     * @param function Function called.
+     * @param memory VM memory.
+     * @param frame Frame pointer of the call.
+     * @param parameters Number of parameters of the function.
+     * @return Result of the call, null if it is not in the table.
+     */
+    public Integer lookup(int function, int[] memory, int frame, int parameters) {
+        Integer result = results.get(key(function, memory, frame, parameters));
+
+        if (result != null)
+            hits++;
+        else
+            misses++;
+
+        return result;
+    }
+
+    /**
+     * Store the result of a call, evicting the least recently used one if the table is full.
+     *
+     * @param function Function called.
+     * @param memory VM memory.
+     * @param frame Frame pointer of the call.
+     * @param parameters Number of parameters of the function.
+     * @param result Value returned.
+     */
+    public void put(int function, int[] memory, int frame, int parameters, int result) {
+        results.put(key(function, memory, frame, parameters), result);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Number of results kept.
+     */
+    public int size() {
+        return results.size();
+    }
+}
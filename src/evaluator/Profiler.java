@@ -0,0 +1,247 @@
+package evaluator;
+
+import parser.SVMParser;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Execution profiler plugged into the VM as a tracer, so that it costs nothing when profiling is off.
+ * It counts the dispatches of every opcode (a superinstruction counts once) and, for every function entered
+ * with jsub, the calls, the instructions executed in its own body (self) and in it and its callees (inclusive).
+ * When the VM stops it prints a table, and optionally writes the self counts of every call stack in the
+ * collapsed format read by flame graph tools. Functions entered by a tail call reuse the frame of the caller
+ * and are counted as part of it. A call to a memoized function whose result is in the memo table returns
+ * right after the lookup.
+ */
+public class Profiler implements Tracer {
+    private static final String MAIN = "main";
+
+    private final PrintStream out;
+    private final Path stacksFile;
+    private final HashMap<Integer, String> labelAt = new HashMap<>();
+
+    private final long[] dispatches = new long[256];
+    private long total = 0;
+
+    // Functions profiled, indexed in order of first call; index 0 is the code outside any function
+    private final HashMap<Integer, Integer> functionAt = new HashMap<>();
+    private final ArrayList<String> names = new ArrayList<>();
+    private long[] calls = new long[8];
+    private long[] self = new long[8];
+    private long[] inclusive = new long[8];
+    // Activations of every function on the call stack, to count recursive calls once in the inclusive count
+    private int[] active = new int[8];
+
+    // Call stack: function and instructions executed when it was entered, -1 if already active
+    private int[] stack = new int[64];
+    private long[] entered = new long[64];
+    private int depth = 0;
+    private StackNode current = new StackNode(null, 0);
+    private final StackNode root = current;
+
+    private boolean calling = false;
+    private boolean returning = false;
+    // Address of the memo lookup executed last, -1 if the last instruction was not one: a hit returns
+    private int memoLookup = -1;
+
+    /**
+     * Node of the tree of the call stacks seen, with the instructions executed with that exact stack.
+     */
+    private static class StackNode {
+        final StackNode parent;
+        final int function;
+        final HashMap<Integer, StackNode> children = new HashMap<>();
+        long self = 0;
+
+        StackNode(StackNode parent, int function) {
+            this.parent = parent;
+            this.function = function;
+        }
+    }
+
+    /**
+     * @param labels Address of every label of the program, used to name the functions.
+     * @param out Stream the table is printed to.
+     * @param stacksFile File the collapsed stacks are written to, null to skip them.
+     */
+    public Profiler(Map<String, Integer> labels, PrintStream out, Path stacksFile) {
+        this.out = out;
+        this.stacksFile = stacksFile;
+
+        if (labels != null)
+            for (Map.Entry<String, Integer> label : labels.entrySet())
+                labelAt.merge(label.getValue(), label.getKey(), (a, b) -> a.compareTo(b) <= 0 ? a : b);
+
+        names.add(MAIN);
+        calls[0] = 1;
+        active[0] = 1;
+    }
+
+    /**
+     * Name of the function at an address: the SimpLanPlus name recorded in the label by FunDecNode,
+     * or the label itself for hand written code.
+     *
+     * @param address Function address.
+     * @return Function name.
+     */
+    private String functionName(int address) {
+        String label = labelAt.get(address);
+
+        if (label == null)
+            return "@" + address;
+
+        return label.matches("function[0-9]+[A-Za-z][A-Za-z0-9]*") ? label.replaceFirst("function[0-9]+", "") : label;
+    }
+
+    @Override
+    public void step(int step, int opcode, int[] registers) {
+        // Calls and returns take effect on the instruction after jsub and rsub, or a memo lookup that hits
+        if (calling)
+            enter(registers[ExecuteVM.IP]);
+        else if ((returning || memoLookup >= 0 && registers[ExecuteVM.IP] != memoLookup + 1) && depth > 0)
+            exit();
+
+        calling = opcode == SVMParser.JUMPSUB;
+        returning = opcode == SVMParser.RETURNSUB;
+        memoLookup = opcode == MemoTable.MEMO ? registers[ExecuteVM.IP] : -1;
+
+        dispatches[opcode & 0xFF]++;
+        total++;
+        self[current.function]++;
+        current.self++;
+    }
+
+    private void enter(int address) {
+        Integer function = functionAt.get(address);
+
+        if (function == null) {
+            function = names.size();
+            functionAt.put(address, function);
+            names.add(functionName(address));
+
+            if (function == calls.length) {
+                calls = Arrays.copyOf(calls, function * 2);
+                self = Arrays.copyOf(self, function * 2);
+                inclusive = Arrays.copyOf(inclusive, function * 2);
+                active = Arrays.copyOf(active, function * 2);
+            }
+        }
+
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+            entered = Arrays.copyOf(entered, depth * 2);
+        }
+
+        calls[function]++;
+        stack[depth] = function;
+        entered[depth++] = active[function]++ == 0 ? total : -1;
+        current = current.children.computeIfAbsent(function, f -> new StackNode(current, f));
+    }
+
+    private void exit() {
+        int function = stack[--depth];
+
+        if (entered[depth] >= 0)
+            inclusive[function] += total - entered[depth];
+
+        active[function]--;
+        current = current.parent;
+    }
+
+    @Override
+    public void write(int address, int value) {
+    }
+
+    @Override
+    public void close() {
+        // Functions still running when the VM stops
+        while (depth > 0)
+            exit();
+
+        inclusive[0] = total;
+        printTable();
+
+        if (stacksFile != null)
+            writeStacks();
+    }
+
+    private void printTable() {
+        out.println("\nProfile: " + total + " instructions dispatched.");
+        out.printf("%-16s %14s %8s%n", "Opcode", "Dispatches", "%");
+
+        Integer[] opcodes = new Integer[dispatches.length];
+        for (int i = 0; i < opcodes.length; i++)
+            opcodes[i] = i;
+        Arrays.sort(opcodes, (a, b) -> Long.compare(dispatches[b], dispatches[a]));
+
+        for (int opcode : opcodes)
+            if (dispatches[opcode] > 0)
+                out.printf("%-16s %14d %7.2f%%%n", Tracer.opcodeName(opcode), dispatches[opcode], percent(dispatches[opcode]));
+
+        out.printf("%n%-16s %10s %14s %8s %14s %8s%n", "Function", "Calls", "Self", "%", "Inclusive", "%");
+
+        Integer[] functions = new Integer[names.size()];
+        for (int i = 0; i < functions.length; i++)
+            functions[i] = i;
+        Arrays.sort(functions, (a, b) -> Long.compare(self[b], self[a]));
+
+        for (int function : functions)
+            out.printf("%-16s %10d %14d %7.2f%% %14d %7.2f%%%n", names.get(function), calls[function],
+                    self[function], percent(self[function]), inclusive[function], percent(inclusive[function]));
+    }
+
+    private double percent(long count) {
+        return total > 0 ? 100.0 * count / total : 0;
+    }
+
+    /**
+     * Write a line "main;f;g count" for every call stack that executed instructions in its innermost function.
+     */
+    private void writeStacks() {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(stacksFile))) {
+            // Depth-first visit without recursion, as recursive programs make deep call stacks
+            StringBuilder path = new StringBuilder(MAIN);
+            ArrayList<Iterator<StackNode>> children = new ArrayList<>();
+            ArrayList<Integer> lengths = new ArrayList<>();
+            StackNode node = root;
+
+            while (true) {
+                if (node != null) {
+                    if (node.self > 0)
+                        writer.append(path).append(' ').println(node.self);
+
+                    children.add(node.children.values().iterator());
+                    lengths.add(path.length());
+                }
+
+                int top = children.size() - 1;
+
+                if (top < 0)
+                    break;
+
+                path.setLength(lengths.get(top));
+
+                if (children.get(top).hasNext()) {
+                    node = children.get(top).next();
+                    path.append(';').append(names.get(node.function));
+                } else {
+                    children.remove(top);
+                    lengths.remove(top);
+                    node = null;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package evaluator;
+
+import java.io.PrintStream;
+
+/**
+ * Tracer that keeps in memory only the last steps executed, printed when the VM stops.
+ */
+public class RingTracer implements Tracer {
+    public static final int DEFAULT_SIZE = 64;
+
+    // Every record holds step number, opcode, last memory write (address and value) and the register file
+    private static final int STEP = 0;
+    private static final int OPCODE = 1;
+    private static final int ADDRESS = 2;
+    private static final int VALUE = 3;
+    private static final int REGISTERS = 4;
+    private static final int RECORD_SIZE = REGISTERS + ExecuteVM.REGISTERS;
+
+    private final int[] buffer;
+    private final int size;
+    private final PrintStream out;
+    private int next = 0;
+    private long recorded = 0;
+
+    /**
+     * @param size Number of steps kept.
+     * @param out Stream the steps are printed to when the VM stops.
+     */
+    public RingTracer(int size, PrintStream out) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Ring tracer size must be positive.");
+
+        this.size = size;
+        this.out = out;
+        this.buffer = new int[size * RECORD_SIZE];
+    }
+
+    @Override
+    public void step(int step, int opcode, int[] registers) {
+        int record = next * RECORD_SIZE;
+        buffer[record + STEP] = step;
+        buffer[record + OPCODE] = opcode;
+        buffer[record + ADDRESS] = -1;
+        System.arraycopy(registers, 0, buffer, record + REGISTERS, ExecuteVM.REGISTERS);
+
+        next = (next + 1) % size;
+        recorded++;
+    }
+
+    @Override
+    public void write(int address, int value) {
+        // The write belongs to the last recorded step
+        int record = ((next + size - 1) % size) * RECORD_SIZE;
+        buffer[record + ADDRESS] = address;
+        buffer[record + VALUE] = value;
+    }
+
+    /**
+     * Print the buffered steps, from the oldest to the newest.
+     */
+    @Override
+    public void close() {
+        int count = (int) Math.min(recorded, size);
+        StringBuilder str = new StringBuilder("Last " + count + " steps:\n");
+
+        for (int i = 0; i < count; i++) {
+            int record = ((next + size - count + i) % size) * RECORD_SIZE;
+            str.append(buffer[record + STEP]).append(": IP = ").append(buffer[record + REGISTERS + ExecuteVM.IP])
+                    .append(" ").append(Tracer.opcodeName(buffer[record + OPCODE]))
+                    .append("\t SP = ").append(buffer[record + REGISTERS + ExecuteVM.SP])
+                    .append(", FP = ").append(buffer[record + REGISTERS + ExecuteVM.FP])
+                    .append(", AL = ").append(buffer[record + REGISTERS + ExecuteVM.AL])
+                    .append(", RA = ").append(buffer[record + REGISTERS + ExecuteVM.RA])
+                    .append(", A0 = ").append(buffer[record + REGISTERS + ExecuteVM.A0])
+                    .append(", T1 = ").append(buffer[record + REGISTERS + ExecuteVM.T1]);
+
+            if (buffer[record + ADDRESS] >= 0)
+                str.append(", [").append(buffer[record + ADDRESS]).append("] <- ").append(buffer[record + VALUE]);
+
+            str.append("\n");
+        }
+
+        out.print(str);
+    }
+}
@@ -0,0 +1,244 @@
+package evaluator;
+
+import parser.SVMParser;
+
+/**
+ * Fusion pass over the packed image, run between assembly and execution. It recognises the fixed
+ * instruction sequences emitted by code generation and replaces each one with a single superinstruction.
+ * The superinstruction is written in the first slot of the sequence and continues after its last slot,
+ * so addresses do not change; sequences with a jump target inside are left as they are.
+ */
+public class Superinstructions {
+    /**
+     * move AL T1 / store T1 0(T1) * depth / subi T1 offset / store REG 0(T1):
+     * REG <- variable at the given depth and offset. ARG1 = depth, ARG2 = offset, ARG3 = REG.
+     */
+    public static final int LOAD_LOCAL = 100;
+    /**
+     * move AL T1 / store T1 0(T1) * depth / subi T1 offset / load REG 0(T1):
+     * variable at the given depth and offset <- REG. ARG1 = depth, ARG2 = offset, ARG3 = REG.
+     */
+    public static final int STORE_LOCAL = 101;
+    /**
+     * popr R / op Ra Rb / popr A0: R <- top of the stack, A0 <- Ra op Rb. ARG1 = R, ARG2 = Ra, ARG3 = Rb.
+     */
+    public static final int POP_ADD = 102;
+    public static final int POP_SUB = 103;
+    public static final int POP_MUL = 104;
+    public static final int POP_DIV = 105;
+
+    private int fused = 0;
+    private int merged = 0;
+
+    /**
+     * @return Number of sites of the image where a sequence was fused.
+     */
+    public int getFused() {
+        return fused;
+    }
+
+    /**
+     * @return Instructions of the image merged into the superinstruction of their sequence. This is a static count:
+     * the dispatches saved at run time depend on how often each site is executed, see the profiler.
+     */
+    public int getMerged() {
+        return merged;
+    }
+
+    /**
+     * @param opcode Fused opcode.
+     * @return Printable name, null if the opcode is not a superinstruction.
+     */
+    public static String name(int opcode) {
+        return switch (opcode) {
+            case LOAD_LOCAL -> "LOAD_LOCAL";
+            case STORE_LOCAL -> "STORE_LOCAL";
+            case POP_ADD -> "POP_ADD";
+            case POP_SUB -> "POP_SUB";
+            case POP_MUL -> "POP_MUL";
+            case POP_DIV -> "POP_DIV";
+            default -> null;
+        };
+    }
+
+    /**
+     * Number of code slots covered by an instruction, i.e. the distance to the next instruction.
+     *
+     * @param code Packed image.
+     * @param ip Instruction address.
+     * @return Number of slots.
+     */
+    public static int length(int[] code, int ip) {
+        int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+
+        return switch (code[pc + ExecuteVM.OPCODE]) {
+            case LOAD_LOCAL, STORE_LOCAL -> 3 + code[pc + ExecuteVM.ARG1];
+            case POP_ADD, POP_SUB, POP_MUL, POP_DIV -> 3;
+            default -> 1;
+        };
+    }
+
+    /**
+     * Fuse the known sequences of the image.
+     *
+     * @param image Packed image, left untouched.
+     * @return Packed image with superinstructions.
+     */
+    public int[] fuse(int[] image) {
+        int[] code = image.clone();
+        int slots = code.length / ExecuteVM.INSTRUCTION_SIZE;
+        boolean[] targets = targets(code, slots);
+
+        for (int ip = 0; ip < slots; ip += length(code, ip)) {
+            int length = fuseLocal(code, slots, targets, ip);
+
+            if (length == 0)
+                length = fuseBinary(code, slots, targets, ip);
+
+            if (length > 0) {
+                fused++;
+                merged += length - 1;
+            }
+        }
+
+        return code;
+    }
+
+    /**
+     * Mark the addresses control can be transferred to: branch and call targets and return addresses.
+     */
+    private static boolean[] targets(int[] code, int slots) {
+        boolean[] targets = new boolean[slots + 1];
+
+        for (int ip = 0; ip < slots; ip += length(code, ip)) {
+            int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+
+            switch (code[pc + ExecuteVM.OPCODE]) {
+                case SVMParser.BRANCH, SVMParser.BRANCHEQ, SVMParser.BRANCHLESSEQ -> mark(targets,
+                        code[pc + ExecuteVM.ARG3]);
+                case SVMParser.JUMPSUB -> {
+                    mark(targets, code[pc + ExecuteVM.ARG1]);
+                    mark(targets, ip + 1);
+                }
+                // Label addresses pushed as values
+                case SVMParser.PUSH -> mark(targets, code[pc + ExecuteVM.ARG1]);
+                default -> {
+                }
+            }
+        }
+
+        return targets;
+    }
+
+    private static void mark(boolean[] targets, int address) {
+        if (address >= 0 && address < targets.length)
+            targets[address] = true;
+    }
+
+    /**
+     * @return Length of the fused variable access starting at ip, 0 if there is none.
+     */
+    private static int fuseLocal(int[] code, int slots, boolean[] targets, int ip) {
+        if (!is(code, slots, ip, SVMParser.MOVE, ExecuteVM.AL, ExecuteVM.T1))
+            return 0;
+
+        int depth = 0;
+        int next = ip + 1;
+
+        while (isWalk(code, slots, next) && !targets[next]) {
+            depth++;
+            next++;
+        }
+
+        if (targets[next] || !is(code, slots, next, SVMParser.SUBI, ExecuteVM.T1) || targets[next + 1])
+            return 0;
+
+        int offset = arg(code, next, ExecuteVM.ARG2);
+        int last = next + 1;
+        int opcode;
+
+        if (last >= slots || arg(code, last, ExecuteVM.ARG2) != 0 || arg(code, last, ExecuteVM.ARG3) != ExecuteVM.T1)
+            return 0;
+
+        if (arg(code, last, ExecuteVM.OPCODE) == SVMParser.STORE)
+            opcode = LOAD_LOCAL;
+        else if (arg(code, last, ExecuteVM.OPCODE) == SVMParser.LOAD)
+            opcode = STORE_LOCAL;
+        else
+            return 0;
+
+        int reg = arg(code, last, ExecuteVM.ARG1);
+
+        // The fused instruction leaves T1 holding the variable address, so REG must be another register
+        if (reg == ExecuteVM.T1 || reg == ExecuteVM.SP || reg == ExecuteVM.IP)
+            return 0;
+
+        int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+        code[pc + ExecuteVM.OPCODE] = opcode;
+        code[pc + ExecuteVM.ARG1] = depth;
+        code[pc + ExecuteVM.ARG2] = offset;
+        code[pc + ExecuteVM.ARG3] = reg;
+
+        return last + 1 - ip;
+    }
+
+    /**
+     * @return Length of the fused binary operation starting at ip, 0 if there is none.
+     */
+    private static int fuseBinary(int[] code, int slots, boolean[] targets, int ip) {
+        if (ip + 2 >= slots || targets[ip + 1] || targets[ip + 2] ||
+                !is(code, slots, ip, SVMParser.POPR) || !is(code, slots, ip + 2, SVMParser.POPR, ExecuteVM.A0))
+            return 0;
+
+        int opcode = switch (arg(code, ip + 1, ExecuteVM.OPCODE)) {
+            case SVMParser.ADD -> POP_ADD;
+            case SVMParser.SUB -> POP_SUB;
+            case SVMParser.MUL -> POP_MUL;
+            case SVMParser.DIV -> POP_DIV;
+            default -> 0;
+        };
+        int popped = arg(code, ip, ExecuteVM.ARG1);
+        int left = arg(code, ip + 1, ExecuteVM.ARG1);
+        int right = arg(code, ip + 1, ExecuteVM.ARG2);
+
+        // The stack pointer moves inside the sequence, so it cannot be an operand
+        if (opcode == 0 || isStackRegister(popped) || isStackRegister(left) || isStackRegister(right))
+            return 0;
+
+        int pc = ip * ExecuteVM.INSTRUCTION_SIZE;
+        code[pc + ExecuteVM.OPCODE] = opcode;
+        code[pc + ExecuteVM.ARG1] = popped;
+        code[pc + ExecuteVM.ARG2] = left;
+        code[pc + ExecuteVM.ARG3] = right;
+
+        return 3;
+    }
+
+    private static boolean isStackRegister(int reg) {
+        return reg == ExecuteVM.SP || reg == ExecuteVM.IP;
+    }
+
+    /**
+     * @return True if the instruction is store T1 0(T1).
+     */
+    private static boolean isWalk(int[] code, int slots, int ip) {
+        return is(code, slots, ip, SVMParser.STORE, ExecuteVM.T1) && arg(code, ip, ExecuteVM.ARG2) == 0 &&
+                arg(code, ip, ExecuteVM.ARG3) == ExecuteVM.T1;
+    }
+
+    private static boolean is(int[] code, int slots, int ip, int opcode) {
+        return ip < slots && arg(code, ip, ExecuteVM.OPCODE) == opcode;
+    }
+
+    private static boolean is(int[] code, int slots, int ip, int opcode, int arg1) {
+        return is(code, slots, ip, opcode) && arg(code, ip, ExecuteVM.ARG1) == arg1;
+    }
+
+    private static boolean is(int[] code, int slots, int ip, int opcode, int arg1, int arg2) {
+        return is(code, slots, ip, opcode, arg1) && arg(code, ip, ExecuteVM.ARG2) == arg2;
+    }
+
+    private static int arg(int[] code, int ip, int field) {
+        return code[ip * ExecuteVM.INSTRUCTION_SIZE + field];
+    }
+}
@@ -0,0 +1,105 @@
+package evaluator;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+
+/**
+ * Execution tracer plugged into the VM. When tracing is off the VM holds no tracer at all, so that
+ * the interpreter loop does not pay anything for it.
+ */
+public interface Tracer {
+    /**
+     * Invoked before the execution of every instruction.
+     *
+     * @param step Number of instructions executed so far.
+     * @param opcode Opcode of the instruction at registers[IP].
+     * @param registers VM register file.
+     */
+    void step(int step, int opcode, int[] registers);
+
+    /**
+     * Invoked on every write to the VM memory.
+     *
+     * @param address Memory cell written.
+     * @param value Value written.
+     */
+    void write(int address, int value);
+
+    /**
+     * Invoked when the VM stops, either on halt or on error.
+     */
+    void close();
+
+    /**
+     * Create a tracer from its textual description: "off", "ring[:N]" for an in-memory buffer of the last
+     * N steps, "full[:file]" for the complete delta trace on the output of the VM or on a file.
+     *
+     * @param mode Tracer description.
+     * @param out Output stream of the VM, left open when the tracer is closed.
+     * @return Tracer, null if tracing is off.
+     */
+    static Tracer create(String mode, PrintStream out) throws IOException {
+        String[] parts = mode.split(":", 2);
+
+        return switch (parts[0]) {
+            case "off" -> null;
+            case "ring" -> new RingTracer(parts.length > 1 ? Integer.parseInt(parts[1]) : RingTracer.DEFAULT_SIZE,
+                    out);
+            case "full" -> parts.length > 1 ?
+                    new DeltaTracer(new BufferedWriter(new FileWriter(parts[1])), true) :
+                    new DeltaTracer(new BufferedWriter(new OutputStreamWriter(out)), false);
+            default -> throw new IllegalArgumentException("Unknown trace mode " + mode);
+        };
+    }
+
+    /**
+     * Plug two tracers into the same VM.
+     *
+     * @param first First tracer, may be null.
+     * @param second Second tracer, may be null.
+     * @return Tracer forwarding every event to both, null if both are null.
+     */
+    static Tracer both(Tracer first, Tracer second) {
+        if (first == null || second == null)
+            return first != null ? first : second;
+
+        return new Tracer() {
+            @Override
+            public void step(int step, int opcode, int[] registers) {
+                first.step(step, opcode, registers);
+                second.step(step, opcode, registers);
+            }
+
+            @Override
+            public void write(int address, int value) {
+                first.write(address, value);
+                second.write(address, value);
+            }
+
+            @Override
+            public void close() {
+                first.close();
+                second.close();
+            }
+        };
+    }
+
+    /**
+     * @param opcode Instruction opcode.
+     * @return Printable name of the opcode.
+     */
+    static String opcodeName(int opcode) {
+        String name = parser.SVMParser.VOCABULARY.getSymbolicName(opcode);
+
+        if (name == null)
+            name = Superinstructions.name(opcode);
+
+        if (name == null)
+            name = MemoTable.name(opcode);
+
+        return name != null ? name : String.valueOf(opcode);
+    }
+}
@@ -0,0 +1,13 @@
+package evaluator;
+
+/**
+ * Runtime trap raised by the VM, e.g. on stack overflow or underflow, on invalid memory access or on division by
+ * zero.
+ */
+public class VMException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public VMException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,67 @@
+package main;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Client of the compile and run server: sends a source file and prints the answer.
+ * Usage: main.Client [--socket=path] check|compile|run file
+ */
+public class Client {
+   public static void main(String[] args) throws IOException {
+      Path socket = Server.DEFAULT_SOCKET;
+      String command = null;
+      String file = null;
+
+      for (String arg : args) {
+         if (arg.startsWith("--socket="))
+            socket = Path.of(arg.substring("--socket=".length()));
+         else if (command == null)
+            command = arg;
+         else
+            file = arg;
+      }
+
+      if (file == null) {
+         System.out.println("Usage: main.Client [--socket=path] check|compile|run file");
+         System.exit(2);
+      }
+
+      byte[] source;
+
+      try {
+         source = Files.readAllBytes(Path.of(file));
+      } catch (IOException e) {
+         System.out.println("Error during the opening of the file.");
+         System.exit(1);
+         return;
+      }
+
+      try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+         channel.connect(UnixDomainSocketAddress.of(socket));
+
+         DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+         request.writeUTF(command);
+         request.writeUTF(Path.of(file).getFileName().toString());
+         request.writeInt(source.length);
+         request.write(source);
+         request.flush();
+
+         DataInputStream response = new DataInputStream(Channels.newInputStream(channel));
+         int status = response.readInt();
+         byte[] output = new byte[response.readInt()];
+         response.readFully(output);
+
+         System.out.write(output);
+         System.out.flush();
+         System.exit(status);
+      }
+   }
+}
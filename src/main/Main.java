@@ -1,127 +1,106 @@
 package main;
 
-import ast.SLPVisitor;
-import ast.VMVisitor;
-import ast.nodes.Node;
-import ast.types.ErrorType;
-import evaluator.ExecuteVM;
-import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import parser.SVMLexer;
-import parser.SVMParser;
-import parser.SimpLanPlusLexer;
-import parser.SimpLanPlusParser;
-import utils.SLPErrorHandler;
-import utils.SemanticError;
-import utils.SymbolTable;
-
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
+import utils.CompileCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
 
 public class Main {
    public static void main(String[] args) throws Exception {
+      Options options = Options.parse(args);
+      CompileCache cache = options.useCache ?
+              new CompileCache(Path.of(System.getProperty("user.dir") + "/tests/cache"), options.cacheSize) : null;
+
+      if (options.serverSocket != null) {
+         new Server(options, cache).serve(Path.of(options.serverSocket));
+         return;
+      }
+
+      if (options.batchDir != null) {
+         batch(options, cache, Path.of(options.batchDir));
+         return;
+      }
+
+      // The same session compiles every program of the interactive loop
+      Session session = new Session(options, cache);
+
+      // A single scanner, so that input buffered for a file name is not lost for the following ones
+      Scanner scanner = new Scanner(System.in);
+
       while (true) {
          // Getting filename at running time
-         Scanner scanner = new Scanner(System.in);
          System.out.println("Insert filename: ");
-         String filename = scanner.nextLine();
 
-         CharStream charStream = null;
+         if (!scanner.hasNextLine())
+            return;
 
-         try {
-            charStream = CharStreams.fromFileName("tests/" + filename);
-         } catch (Exception e) {
-            System.out.println("Error during the opening of the file.");
+         String filename = scanner.nextLine();
+
+         if (!session.run(Path.of("tests/" + filename), filename, System.out))
             System.exit(1);
-         }
+      }
+   }
+
+   /**
+    * Compile and run every .slp file of a directory on a fork-join pool. Every file is compiled with its own
+    * context and its output is collected apart, then printed in file name order.
+    *
+    * @param options Compiler options.
+    * @param cache Compilation cache, null if disabled.
+    * @param directory Directory of the sources.
+    */
+   private static void batch(Options options, CompileCache cache, Path directory) throws IOException {
+      List<Path> files;
+
+      try (Stream<Path> stream = Files.list(directory)) {
+         files = stream.filter(file -> file.toString().endsWith(".slp") && Files.isRegularFile(file))
+                 .sorted().toList();
+      }
+
+      long start = System.nanoTime();
+      // Lexers and parsers cannot be shared: every worker thread has its own session
+      ThreadLocal<Session> sessions = ThreadLocal.withInitial(() -> new Session(options, cache));
+      ForkJoinPool pool = new ForkJoinPool(options.threads);
+
+      try {
+         ArrayList<ForkJoinTask<String>> tasks = new ArrayList<>();
 
-         // Initialize parser
-         SimpLanPlusLexer lexer = new SimpLanPlusLexer(charStream);
-         SimpLanPlusParser parser = new SimpLanPlusParser(new CommonTokenStream(lexer));
-
-         // Adding custom error handler
-         SLPErrorHandler handler = new SLPErrorHandler();
-
-         lexer.removeErrorListeners();
-         lexer.addErrorListener(handler);
-
-         parser.removeErrorListeners();
-         parser.addErrorListener(handler);
-
-         // Initialize visitor
-         SLPVisitor visitor = new SLPVisitor();
-
-         // Generate abstract tree
-         Node ast = visitor.visit(parser.prog());
-
-         // Used to mute errors if needed
-         boolean showError = true;
-         // Check for lexical and syntax errors
-         if (showError && handler.errorNumber() > 0) {
-            System.out.println(handler);
-            handler.toLog(filename);
-         } else {
-            SymbolTable symbolTable = new SymbolTable();
-            ArrayList<SemanticError> errors = ast.checkSemantics(symbolTable, 0);
-
-            // Check for semantic errors
-            if (showError && errors.size() > 0) {
-               System.out.println("You had " + errors.size() + " errors:");
-
-               for (SemanticError error : errors)
-                  System.out.println("\n" + error);
-            } else {
-               System.out.println("Visualizing AST...");
-               System.out.println(ast.toPrint(0));
-
-               // Type checking
-               Node type = ast.typeCheck();
-
-               if (showError && type instanceof ErrorType)
-                  System.out.println("Type checking is WRONG!");
-               else {
-                  System.out.print("Type checking OK! ");
-
-                  if (type != null)
-                     System.out.println("Type of the program is: " + type.toPrint(0) + ".");
-                  else
-                     System.out.println("Program has no type.");
-
-                  // Code generation
-                  String code = ast.codeGeneration();
-
-                  String codeDirPath = System.getProperty("user.dir") + "/tests/asm";
-
-                  // Create code directory if not exists
-                  File codeDir = new File(codeDirPath);
-
-                  if (!codeDir.exists())
-                     if(!codeDir.mkdir()) {
-                        System.out.println("Error during the creation of the code folder.");
-                        System.exit(1);
-                     }
-
-                  BufferedWriter out = new BufferedWriter(new FileWriter(codeDirPath + "/" + filename + ".asm"));
-                  out.write(code);
-                  out.close();
-                  CharStream codeStream = CharStreams.fromString(code);
-                  System.out.println("Code generated! Assembling and running generated code...");
-                  SVMLexer lexerSVM = new SVMLexer(codeStream);
-                  SVMParser parserSVM = new SVMParser(new CommonTokenStream(lexerSVM));
-
-                  VMVisitor visitorSVM = new VMVisitor();
-                  visitorSVM.visit(parserSVM.assembly());
-
-                  System.out.println("Starting Virtual Machine...");
-                  ExecuteVM vm = new ExecuteVM(visitorSVM.code);
-                  vm.cpu();
+         for (Path file : files)
+            tasks.add(pool.submit(() -> {
+               ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+               PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+
+               try {
+                  sessions.get().run(file, file.getFileName().toString(), out);
+               } catch (Exception | StackOverflowError e) {
+                  out.println("Error during the compilation of the file: " + e);
                }
-            }
+
+               return buffer.toString(StandardCharsets.UTF_8);
+            }));
+
+         for (int i = 0; i < files.size(); i++) {
+            System.out.println("==> " + files.get(i).getFileName() + " <==");
+            System.out.print(tasks.get(i).join());
          }
+      } finally {
+         pool.shutdown();
       }
+
+      System.out.println("Compiled and run " + files.size() + " files with " + options.threads + " threads in " +
+              (System.nanoTime() - start) / 1_000_000 + " ms.");
+
+      if (cache != null)
+         System.out.println("Compilation cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses.");
    }
 }
@@ -0,0 +1,109 @@
+package main;
+
+import evaluator.ExecuteVM;
+import evaluator.MemoTable;
+import utils.CompileCache;
+
+/**
+ * Command line options of the compiler, shared by every session.
+ */
+class Options {
+   // VM tracing is off unless requested with --trace=ring[:N] or --trace=full[:file]
+   String traceMode = "off";
+   // Initial code buffer size and VM memory size
+   int codeSize = ExecuteVM.CODESIZE;
+   int memSize = ExecuteVM.MEMSIZE;
+   // VM engine: "switch" interpreter, "closure" pre-linked handlers or "jvm" compiled to JVM bytecode
+   String engine = "switch";
+   // Assembly text of the compiled programs, written only with --emit-asm
+   boolean emitAsm = false;
+   // Compilation cache, disabled with --no-cache and bounded with --cache-size=bytes
+   boolean useCache = true;
+   long cacheSize = CompileCache.DEFAULT_MAX_SIZE;
+   // Directory compiled and run in parallel with --batch=dir, on --threads=N threads, also the server threads
+   String batchDir = null;
+   int threads = Runtime.getRuntime().availableProcessors();
+   // Socket of the compile and run server started with --server[=path]
+   String serverSocket = null;
+   // Execution profile printed with --profile, collapsed call stacks also written with --profile=file
+   boolean profile = false;
+   String profileStacks = null;
+   // Lambda lifting of nested functions, disabled with --no-lift
+   boolean lift = true;
+   // Constant folding and propagation, disabled with --no-fold
+   boolean fold = true;
+   // Maximum number of nodes of the body of a function expanded at its calls, 0 disables inlining
+   int inlineSize = 16;
+   // Capacity of the memo table of the pure recursive functions, 0 disables memoization
+   int memoSize = MemoTable.DEFAULT_CAPACITY;
+   // Removal of uncalled functions and dead assignments, disabled with --no-dce
+   boolean dce = true;
+   // Superinstruction fusion of the assembled code, disabled with --no-fuse
+   boolean fuse = true;
+   // Instructions a program may execute before it is stopped, set with --max-steps=N, 0 for no limit
+   long maxSteps = 0;
+   // Compiled programs and syntax error logs written to tests/asm and tests/log, never by the server
+   boolean writeCode = true;
+
+   /**
+    * @return The options that change the generated code, part of the compilation cache key.
+    */
+   String codeOptions() {
+      return "lift=" + lift + ";fold=" + fold + ";dce=" + dce + ";inline=" + inlineSize + ";memo=" + (memoSize > 0);
+   }
+
+   /**
+    * @param args Command line arguments.
+    * @return Options given, defaults for the others.
+    */
+   static Options parse(String[] args) {
+      Options options = new Options();
+
+      for (String arg : args) {
+         if (arg.startsWith("--trace="))
+            options.traceMode = arg.substring("--trace=".length());
+         else if (arg.startsWith("--code-size="))
+            options.codeSize = Integer.parseInt(arg.substring("--code-size=".length()));
+         else if (arg.startsWith("--mem-size="))
+            options.memSize = Integer.parseInt(arg.substring("--mem-size=".length()));
+         else if (arg.startsWith("--engine="))
+            options.engine = arg.substring("--engine=".length());
+         else if (arg.startsWith("--inline-size="))
+            options.inlineSize = Integer.parseInt(arg.substring("--inline-size=".length()));
+         else if (arg.startsWith("--max-steps="))
+            options.maxSteps = Long.parseLong(arg.substring("--max-steps=".length()));
+         else if (arg.startsWith("--memo-size="))
+            options.memoSize = Integer.parseInt(arg.substring("--memo-size=".length()));
+         else if (arg.equals("--no-lift"))
+            options.lift = false;
+         else if (arg.equals("--no-fold"))
+            options.fold = false;
+         else if (arg.equals("--no-dce"))
+            options.dce = false;
+         else if (arg.equals("--no-fuse"))
+            options.fuse = false;
+         else if (arg.equals("--emit-asm"))
+            options.emitAsm = true;
+         else if (arg.equals("--no-cache"))
+            options.useCache = false;
+         else if (arg.startsWith("--cache-size="))
+            options.cacheSize = Long.parseLong(arg.substring("--cache-size=".length()));
+         else if (arg.startsWith("--batch="))
+            options.batchDir = arg.substring("--batch=".length());
+         else if (arg.startsWith("--threads="))
+            options.threads = Integer.parseInt(arg.substring("--threads=".length()));
+         else if (arg.equals("--profile"))
+            options.profile = true;
+         else if (arg.startsWith("--profile=")) {
+            options.profile = true;
+            options.profileStacks = arg.substring("--profile=".length());
+         }
+         else if (arg.equals("--server"))
+            options.serverSocket = Server.DEFAULT_SOCKET.toString();
+         else if (arg.startsWith("--server="))
+            options.serverSocket = arg.substring("--server=".length());
+      }
+
+      return options;
+   }
+}
@@ -0,0 +1,176 @@
+package main;
+
+import utils.CompileCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile and run server listening on a Unix domain socket, so that the JVM, the parsers and the VM stay warm
+ * between requests. A request holds a command ("check", "compile" or "run"), the name of the program and its
+ * source; the answer holds a status, 0 if the program has no errors, and the messages and output of the program.
+ */
+class Server {
+   static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"), "simplanplus.sock");
+
+   // Largest source accepted from a client, in bytes
+   static final int MAX_SOURCE_SIZE = 16 << 20;
+   // Instructions a program may execute unless --max-steps is given, so that a program that never halts
+   // does not hold a pooled thread forever
+   static final long MAX_STEPS = 1_000_000_000L;
+   // Connections waiting for a pooled thread, the others are answered that the server is busy
+   static final int MAX_PENDING = 64;
+
+   private final Options options;
+   private final CompileCache cache;
+   // Lexers and parsers cannot be shared: every pooled thread keeps its own session across connections
+   private final ThreadLocal<Session> sessions;
+
+   /**
+    * @param options Compiler options.
+    * @param cache Compilation cache, null if disabled.
+    */
+   Server(Options options, CompileCache cache) {
+      this.options = options;
+      this.cache = cache;
+      // Requests of the clients never leave files behind and always stop
+      this.options.writeCode = false;
+      if (this.options.maxSteps <= 0)
+         this.options.maxSteps = MAX_STEPS;
+      this.sessions = ThreadLocal.withInitial(() -> new Session(this.options, this.cache));
+   }
+
+   /**
+    * Accept connections until the process is stopped, serving each one on a pooled thread.
+    *
+    * @param socket Path of the socket, replaced if it already exists.
+    */
+   void serve(Path socket) throws IOException {
+      Files.deleteIfExists(socket);
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(options.threads, options.threads, 60, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(MAX_PENDING));
+      pool.allowCoreThreadTimeOut(true);
+
+      try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+         server.bind(UnixDomainSocketAddress.of(socket));
+         System.out.println("Listening on " + socket + "...");
+
+         while (true) {
+            SocketChannel client = server.accept();
+
+            try {
+               pool.execute(() -> handle(client));
+            } catch (RejectedExecutionException e) {
+               reject(client);
+            }
+         }
+      } finally {
+         pool.shutdownNow();
+         Files.deleteIfExists(socket);
+      }
+   }
+
+   /**
+    * Serve a single request.
+    *
+    * @param client Connection of the client.
+    */
+   private void handle(SocketChannel client) {
+      try (client) {
+         DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+         String command = in.readUTF();
+         String filename = in.readUTF();
+         int length = in.readInt();
+
+         ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+         PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+         int status;
+
+         // The length is checked before the source is allocated, the name before it reaches the session
+         if (length < 0 || length > MAX_SOURCE_SIZE) {
+            out.println("Source of " + length + " bytes rejected, the limit is " + MAX_SOURCE_SIZE + " bytes.");
+            status = 2;
+         } else {
+            byte[] source = new byte[length];
+            in.readFully(source);
+
+            if (!isPlainFilename(filename)) {
+               out.println("Invalid program name \"" + filename + "\", expected a file name without directories.");
+               status = 2;
+            } else {
+               try {
+                  Session.Mode mode = Session.Mode.valueOf(command.toUpperCase());
+                  status = sessions.get().process(new String(source, StandardCharsets.UTF_8), filename, mode,
+                          out) ? 0 : 1;
+               } catch (IllegalArgumentException e) {
+                  out.println("Unknown command " + command + ".");
+                  status = 2;
+               } catch (Exception | StackOverflowError e) {
+                  out.println("Error during the compilation of the file: " + e);
+                  status = 2;
+               }
+            }
+         }
+
+         DataOutputStream response = new DataOutputStream(Channels.newOutputStream(client));
+         response.writeInt(status);
+         response.writeInt(buffer.size());
+         buffer.writeTo(response);
+         response.flush();
+      } catch (IOException e) {
+         // Client gone: nothing to answer
+      }
+   }
+
+   /**
+    * Answer a connection that cannot be queued without reading its request.
+    *
+    * @param client Connection of the client.
+    */
+   private static void reject(SocketChannel client) {
+      try (client) {
+         byte[] message = "Server busy, try again later.\n".getBytes(StandardCharsets.UTF_8);
+         DataOutputStream response = new DataOutputStream(Channels.newOutputStream(client));
+         response.writeInt(2);
+         response.writeInt(message.length);
+         response.write(message);
+         response.flush();
+      } catch (IOException e) {
+         // Client gone: nothing to answer
+      }
+   }
+
+   /**
+    * Check that a program name sent by a client is a plain file name, so that it cannot name a path of the
+    * server.
+    *
+    * @param filename Program name.
+    * @return True if the name has no directory part and is not a special entry.
+    */
+   static boolean isPlainFilename(String filename) {
+      try {
+         Path name = Path.of(filename).getFileName();
+
+         return name != null && !filename.isEmpty() && name.toString().equals(filename) &&
+                 !filename.equals(".") && !filename.equals("..");
+      } catch (InvalidPathException e) {
+         return false;
+      }
+   }
+}
@@ -0,0 +1,510 @@
+package main;
+
+import ast.DeadCodeEliminator;
+import ast.Inliner;
+import ast.LambdaLifter;
+import ast.Memoizer;
+import ast.SLPVisitor;
+import ast.VMVisitor;
+import ast.nodes.Node;
+import ast.types.ErrorType;
+import evaluator.BinaryProgram;
+import evaluator.ClosureVM;
+import evaluator.CodeBuilder;
+import evaluator.CompiledVM;
+import evaluator.ExecuteVM;
+import evaluator.MemoTable;
+import evaluator.Profiler;
+import evaluator.Superinstructions;
+import evaluator.Tracer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import parser.SVMLexer;
+import parser.SVMParser;
+import parser.SimpLanPlusLexer;
+import parser.SimpLanPlusParser;
+import utils.CompilationContext;
+import utils.CompileCache;
+import utils.SLPErrorHandler;
+import utils.SemanticError;
+import utils.SymbolTable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Compiler session: compiles and runs programs one after the other, reusing the lexer, the parser and their
+ * caches, while every compilation starts from a clean context. A session is not thread safe, programs
+ * compiled concurrently use a session each.
+ */
+class Session {
+   /**
+    * Stage a source is taken to: type checked, compiled to a program or compiled and run.
+    */
+   enum Mode {
+      CHECK, COMPILE, RUN
+   }
+
+   /**
+    * Sources longer than this are compiled on a thread with a stack sized on the source: the generated parser recurses
+    * on the nesting of the program, that is bounded by its length. Shorter sources cannot nest deep enough to use up
+    * the stack of the caller.
+    */
+   private static final int LARGE_SOURCE = 1024;
+   // Bytes of stack given to the compilation of a large source for each of its characters, with a margin over the
+   // parser, that uses up to about 360 for each negation in a row
+   private static final long STACK_PER_CHAR = 512;
+   // Largest stack of a compilation, so that a long source does not reserve a stack proportional to its length: a
+   // program nested deeper than it allows is rejected
+   private static final long MAX_COMPILE_STACK = 64L << 20;
+   // Trees deeper than this are not printed, as the indentation makes the printout quadratic in the depth
+   private static final int MAX_PRINTED_DEPTH = 1000;
+
+   private final Options options;
+   private final CompileCache cache;
+
+   private final SimpLanPlusLexer lexer = new SimpLanPlusLexer(null);
+   private final CommonTokenStream tokens = new CommonTokenStream(lexer);
+   private final SimpLanPlusParser parser = new SimpLanPlusParser(tokens);
+   private final SLPVisitor visitor = new SLPVisitor();
+   // Time spent producing the program last run
+   private long compileTime;
+
+   /**
+    * @param options Compiler options.
+    * @param cache Compilation cache, null if disabled.
+    */
+   Session(Options options, CompileCache cache) {
+      this.options = options;
+      this.cache = cache;
+   }
+
+   /**
+    * Compile and run a program: a source is compiled, an assembly program assembled and a compiled program
+    * loaded.
+    *
+    * @param path Program file.
+    * @param filename Name of the program, used for the generated files.
+    * @param out Stream the messages and the program output are printed to.
+    * @return False if the file cannot be opened.
+    */
+   boolean run(Path path, String filename, PrintStream out) throws IOException {
+      // Precompiled programs are loaded and run without compiling or assembling them
+      if (filename.endsWith(BinaryProgram.EXTENSION)) {
+         long start = System.nanoTime();
+         BinaryProgram program;
+
+         try {
+            program = BinaryProgram.load(path);
+         } catch (IOException e) {
+            out.println("Error during the loading of the compiled program: " + e.getMessage());
+            return false;
+         }
+
+         compileTime = System.nanoTime() - start;
+         execute(program.getImage(), program.getLabels(), out);
+         return true;
+      }
+
+      // Assembly programs are assembled and run without compiling them
+      if (filename.endsWith(".asm")) {
+         CharStream codeStream;
+
+         try {
+            codeStream = CharStreams.fromPath(path);
+         } catch (IOException e) {
+            out.println("Error during the opening of the file.");
+            return false;
+         }
+
+         long start = System.nanoTime();
+         VMVisitor visitorSVM = new VMVisitor(options.codeSize);
+
+         try {
+            visitorSVM.visit(new SVMParser(new CommonTokenStream(new SVMLexer(codeStream))).assembly());
+         } catch (IllegalStateException e) {
+            // Jumps to labels never defined are rejected before the program runs
+            out.println("Error during the assembly of the program: " + e.getMessage());
+            return true;
+         }
+
+         compileTime = System.nanoTime() - start;
+         execute(visitorSVM.image, visitorSVM.getLabels(), out);
+         return true;
+      }
+
+      String source;
+
+      try {
+         source = Files.readString(path);
+      } catch (IOException e) {
+         out.println("Error during the opening of the file.");
+         return false;
+      }
+
+      process(source, filename, Mode.RUN, out);
+
+      return true;
+   }
+
+   /**
+    * Check, compile or run a source.
+    *
+    * @param source Source text.
+    * @param filename Name of the program, used for the generated files.
+    * @param mode Stage the source is taken to.
+    * @param out Stream the messages and the program output are printed to.
+    * @return False if the program has lexical, syntax, semantic or type errors.
+    */
+   boolean process(String source, String filename, Mode mode, PrintStream out) throws IOException {
+      if (source.length() <= LARGE_SOURCE)
+         return compile(source, filename, mode, out);
+
+      FutureTask<Boolean> task = new FutureTask<>(() -> {
+         try {
+            return compile(source, filename, mode, out);
+         } catch (StackOverflowError e) {
+            out.println("Program nested too deeply to be compiled.");
+            return false;
+         }
+      });
+      new Thread(null, task, "compiler-" + filename, Math.min(source.length() * STACK_PER_CHAR, MAX_COMPILE_STACK))
+              .start();
+
+      try {
+         return task.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Compilation of " + filename + " interrupted.");
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof IOException cause)
+            throw cause;
+         else if (e.getCause() instanceof RuntimeException cause)
+            throw cause;
+         else if (e.getCause() instanceof Error cause)
+            throw cause;
+
+         throw new IllegalStateException(e.getCause());
+      }
+   }
+
+   /**
+    * Check, compile or run a source on the current thread.
+    *
+    * @param source Source text.
+    * @param filename Name of the program, used for the generated files.
+    * @param mode Stage the source is taken to.
+    * @param out Stream the messages and the program output are printed to.
+    * @return False if the program has lexical, syntax, semantic or type errors.
+    */
+   private boolean compile(String source, String filename, Mode mode, PrintStream out) throws IOException {
+      // Programs already compiled are taken from the cache without lexing, parsing and checking them
+      long start = System.nanoTime();
+      String cacheKey = null;
+
+      if (cache != null) {
+         cacheKey = CompileCache.key(source, options.codeOptions());
+         CompileCache.Entry entry = cache.get(cacheKey);
+
+         if (entry != null) {
+            // Counters are left out of batch output, which must not depend on the order files are compiled in
+            if (options.batchDir == null)
+               out.println("Compilation cache hit (" + cache.getHits() + " hits, " + cache.getMisses() + " misses).");
+            else
+               out.println("Compilation cache hit.");
+
+            for (String error : entry.typeErrors())
+               out.println(error);
+
+            if (!entry.typeOk()) {
+               out.println("Type checking is WRONG!");
+               return false;
+            }
+
+            printType(entry.type(), out);
+
+            if (mode != Mode.CHECK) {
+               compileTime = System.nanoTime() - start;
+               emit(entry.program().getImage(), entry.program().getLabels(), mode, out);
+            }
+
+            return true;
+         }
+      }
+
+      // Reuse the lexer and the parser of the session, reset on the new input
+      SLPErrorHandler handler = new SLPErrorHandler();
+
+      lexer.setInputStream(CharStreams.fromString(source, filename));
+      lexer.removeErrorListeners();
+      lexer.addErrorListener(handler);
+
+      tokens.setTokenSource(lexer);
+      parser.setTokenStream(tokens);
+      parser.removeErrorListeners();
+      parser.addErrorListener(handler);
+
+      // Generate abstract tree
+      ParseTree tree = parser.prog();
+      Node ast = visitor.visit(tree);
+
+      // Used to mute errors if needed
+      boolean showError = true;
+      // Check for lexical and syntax errors
+      if (showError && handler.errorNumber() > 0) {
+         out.println(handler);
+         if (options.writeCode)
+            handler.toLog(filename);
+         return false;
+      }
+
+      // Every compilation has its own labels and functions code
+      CompilationContext context = new CompilationContext();
+      SymbolTable symbolTable = new SymbolTable(context);
+      ArrayList<SemanticError> errors = ast.checkSemantics(symbolTable, 0);
+
+      // Check for semantic errors
+      if (showError && errors.size() > 0) {
+         out.println("You had " + errors.size() + " errors:");
+
+         for (SemanticError error : errors)
+            out.println("\n" + error);
+
+         return false;
+      }
+
+      out.println("Visualizing AST...");
+
+      if (Node.depth(ast) <= MAX_PRINTED_DEPTH)
+         out.println(ast.toPrint(0));
+      else
+         out.println("AST deeper than " + MAX_PRINTED_DEPTH + " levels, not printed.\n");
+
+      // Type checking, the errors are printed to the stream of this session in the order they were found
+      ErrorType.takeMessages();
+      Node type = ast.typeCheck();
+      List<String> typeErrors = ErrorType.takeMessages();
+
+      for (String error : typeErrors)
+         out.println(error);
+
+      if (showError && type instanceof ErrorType) {
+         out.println("Type checking is WRONG!");
+
+         if (cache != null)
+            cache.put(cacheKey, new CompileCache.Entry(false, null, typeErrors, null));
+
+         return false;
+      }
+
+      String typeName = type != null ? type.toPrint(0) : null;
+      printType(typeName, out);
+
+      if (mode == Mode.CHECK)
+         return true;
+
+      // Nested functions are moved to the global scope and small functions are expanded at their calls, then the
+      // program is bound again
+      boolean lift = options.lift;
+      boolean inline = options.inlineSize > 0;
+
+      while (lift || inline) {
+         boolean lifted = lift && LambdaLifter.lift(ast) > 0;
+         int inlined = inline ? Inliner.inline(ast, options.inlineSize) : 0;
+
+         if (!lifted && inlined == 0)
+            break;
+
+         CompilationContext bound = bind(ast);
+
+         if (bound != null) {
+            context = bound;
+
+            if (inlined > 0)
+               out.println("Inlined " + inlined + " calls.");
+
+            break;
+         }
+
+         // The order of the checks of the transformed program rejected it: build it again without the last pass
+         if (inlined > 0)
+            inline = false;
+         else
+            lift = false;
+
+         ast = visitor.visit(tree);
+         context = bind(ast);
+      }
+
+      // Constant subtrees are replaced by their value, on the bound program
+      if (options.fold) {
+         int nodes = Node.count(ast);
+         ast = ast.fold(new HashMap<>());
+         int removed = nodes - Node.count(ast);
+
+         if (removed > 0)
+            out.println("Constant folding removed " + removed + " nodes.");
+      }
+
+      // Uncalled functions are not generated, assignments never read are removed
+      if (options.dce) {
+         int functions = DeadCodeEliminator.removeUncalledFunctions(ast);
+         int stores = DeadCodeEliminator.removeDeadStores(ast);
+
+         if (functions + stores > 0)
+            out.println("Dead code elimination removed " + functions + " functions and " + stores + " assignments.");
+      }
+
+      // Pure recursive functions look up their results in the memo table
+      if (options.memoSize > 0) {
+         int memoized = Memoizer.memoize(ast);
+
+         if (memoized > 0)
+            out.println("Memoized " + memoized + " functions.");
+      }
+
+      // Code generation, emitted directly as executable code
+      CodeBuilder code = new CodeBuilder(options.codeSize);
+      ast.codeGeneration(context, code);
+      int[] image = code.build();
+
+      BinaryProgram program = new BinaryProgram(image, code.getLabels());
+
+      if (options.writeCode) {
+         // Create code directory if not exists
+         Path codeDir = Files.createDirectories(Path.of(System.getProperty("user.dir") + "/tests/asm"));
+
+         // The assembly is streamed to the file as it is printed
+         if (options.emitAsm)
+            try (BufferedWriter writer = Files.newBufferedWriter(codeDir.resolve(filename + ".asm"))) {
+               code.writeAssembly(writer);
+            }
+
+         program.write(codeDir.resolve(filename + BinaryProgram.EXTENSION));
+      }
+
+      if (cache != null)
+         cache.put(cacheKey, new CompileCache.Entry(true, typeName, typeErrors, program));
+
+      compileTime = System.nanoTime() - start;
+      emit(image, code.getLabels(), mode, out);
+
+      return true;
+   }
+
+   /**
+    * Check a transformed program again, in a new compilation, binding its names.
+    *
+    * @param ast Root of the program.
+    * @return Context of the new compilation, null if the program has semantic or type errors.
+    */
+   private static CompilationContext bind(Node ast) {
+      CompilationContext context = new CompilationContext();
+
+      boolean typeOk = ast.checkSemantics(new SymbolTable(context), 0).isEmpty() &&
+              !(ast.typeCheck() instanceof ErrorType);
+      // The program was checked before it was transformed: its type errors are not reported twice
+      ErrorType.takeMessages();
+
+      if (!typeOk)
+         return null;
+
+      return context;
+   }
+
+   /**
+    * Report the code generated, and run it if requested.
+    *
+    * @param image Packed instruction image.
+    * @param labels Address of every label of the program.
+    * @param mode Stage the source is taken to, compile or run.
+    * @param out Stream the messages and the program output are printed to.
+    */
+   private void emit(int[] image, Map<String, Integer> labels, Mode mode, PrintStream out) throws IOException {
+      if (mode == Mode.COMPILE)
+         out.printf("Code generated! %d instructions in %.2f ms.%n", image.length / ExecuteVM.INSTRUCTION_SIZE,
+                 compileTime / 1e6);
+      else {
+         out.println("Code generated! Running generated code...");
+         execute(image, labels, out);
+      }
+   }
+
+   /**
+    * Print the result of type checking.
+    *
+    * @param type Type of the program, null if the program has no type.
+    * @param out Stream the result is printed to.
+    */
+   private static void printType(String type, PrintStream out) {
+      out.print("Type checking OK! ");
+
+      if (type != null)
+         out.println("Type of the program is: " + type + ".");
+      else
+         out.println("Program has no type.");
+   }
+
+   /**
+    * Run an assembled program with the engine and options chosen at launch.
+    *
+    * @param image Packed instruction image.
+    * @param labels Address of every label of the program, used to name the functions profiled.
+    * @param out Stream the messages and the program output are printed to.
+    */
+   private void execute(int[] image, Map<String, Integer> labels, PrintStream out) throws IOException {
+      if (options.fuse) {
+         Superinstructions fusion = new Superinstructions();
+         image = fusion.fuse(image);
+         out.println("Fused " + fusion.getFused() + " sites, " + fusion.getMerged() +
+                 " instructions merged into superinstructions.");
+      }
+
+      Tracer tracer = Tracer.create(options.traceMode, out);
+
+      if (options.profile)
+         tracer = Tracer.both(tracer, new Profiler(labels, out,
+                 options.profileStacks != null ? Path.of(options.profileStacks) : null));
+
+      out.println("Starting Virtual Machine...");
+      ExecuteVM vm = switch (options.engine) {
+         case "closure" -> new ClosureVM(image, options.memSize, tracer);
+         case "jvm" -> CompiledVM.create(image, options.memSize, tracer, options.maxSteps);
+         default -> new ExecuteVM(image, options.memSize, tracer);
+      };
+      vm.setOutput(out);
+      vm.setStepLimit(options.maxSteps);
+
+      if (options.engine.equals("jvm") && !(vm instanceof CompiledVM))
+         out.println(tracer != null ? "Tracing and profiling run in the interpreter, not in the jvm engine."
+                 : options.maxSteps > 0 ? "The step limit is enforced by the interpreter, not by the jvm engine."
+                 : "The program cannot be compiled to JVM bytecode, running in the interpreter.");
+
+      vm.setMemoTable(new MemoTable(options.memoSize));
+
+      long start = System.nanoTime();
+      vm.cpu();
+
+      MemoTable memo = vm.getMemoTable();
+
+      if (memo.getHits() + memo.getMisses() > 0)
+         out.println("Memo table: " + memo.getHits() + " hits, " + memo.getMisses() + " misses, " +
+                 memo.getEvictions() + " evictions.");
+
+      // Timings are left out of batch output, which must be the same on every run
+      if (options.batchDir == null)
+         out.printf("Compiled in %.2f ms, run in %.2f ms.%n", compileTime / 1e6, (System.nanoTime() - start) / 1e6);
+   }
+}
@@ -0,0 +1,39 @@
+package utils;
+
+import evaluator.CodeBuilder;
+
+/**
+ * State of a single compilation: label counters and the code of the functions declared. Every program is
+ * compiled with its own context, so that labels are the same however many programs are compiled at once.
+ */
+public class CompilationContext {
+    private int labelCount = 0;
+    private int functionLabelCount = 0;
+    private final CodeBuilder functionsCode = new CodeBuilder();
+
+    public String newLabel() {
+        return "label" + labelCount++;
+    }
+
+    /**
+     * @param id Name of the function, kept in the label to map the code back to the function.
+     * @return New function label.
+     */
+    public String newFunLabel(String id) {
+        return "function" + functionLabelCount++ + id;
+    }
+
+    /**
+     * Append function code to the functions builder -> used to put all the functions declaration
+     * at the end of the program code.
+     *
+     * @param code Function code.
+     */
+    public void addFunctionCode(CodeBuilder code) {
+        functionsCode.append(code);
+    }
+
+    public CodeBuilder getFunctionsCode() {
+        return functionsCode;
+    }
+}
@@ -0,0 +1,204 @@
+package utils;
+
+import evaluator.BinaryProgram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed on-disk cache of compiled programs. An entry is keyed by the hash of the source text,
+ * the compiler version and the compilation options, and stores the type checking verdict together with the
+ * compiled program, so that a hit skips lexing, parsing, checking and code generation.
+ * Entries are written to a temporary file and atomically renamed, so readers never see a partial entry;
+ * the least recently used entries are evicted when the cache grows over its size bound.
+ */
+public class CompileCache {
+    // Bumped whenever code generation changes, so that stale programs are never reused
+    public static final String COMPILER_VERSION = "SimpLanPlus-13";
+    public static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+    private static final int MAGIC = 0x534C5043;    // "SLPC"
+    private static final String EXTENSION = ".slpc";
+
+    private final Path directory;
+    private final long maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Result of a compilation stored in the cache.
+     *
+     * @param typeOk Type checking verdict.
+     * @param type Type of the program printed, null if the program has no type or type checking failed.
+     * @param typeErrors Messages of the type errors found, printed again on a hit.
+     * @param program Compiled program, null if type checking failed.
+     */
+    public record Entry(boolean typeOk, String type, List<String> typeErrors, BinaryProgram program) {
+    }
+
+    /**
+     * @param directory Directory of the cache, created if it does not exist.
+     * @param maxSize Maximum total size of the entries in bytes.
+     */
+    public CompileCache(Path directory, long maxSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Compute the key of a source.
+     *
+     * @param source Source text.
+     * @param options Compilation options that change the generated code.
+     * @return Hexadecimal key.
+     */
+    public static String key(String source, String options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((COMPILER_VERSION + '\0' + BinaryProgram.VERSION + '\0' + options + '\0')
+                    .getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Look up a compiled program and mark it as recently used.
+     *
+     * @param key Key of the source.
+     * @return Entry found, null on a miss.
+     */
+    public Entry get(String key) {
+        Path path = directory.resolve(key + EXTENSION);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a cache entry.");
+
+            boolean typeOk = buffer.get() != 0;
+            String type = readString(buffer);
+            String typeErrors = readString(buffer);
+
+            Entry entry = new Entry(typeOk, type.isEmpty() ? null : type,
+                    typeErrors.isEmpty() ? List.of() : List.of(typeErrors.split("\n")),
+                    typeOk ? BinaryProgram.read(buffer) : null);
+
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            // Missing, corrupted or concurrently evicted entry: compile again and replace it
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store a compilation result, then evict the least recently used entries over the size bound.
+     *
+     * @param key Key of the source.
+     * @param entry Compilation result.
+     */
+    public void put(String key, Entry entry) throws IOException {
+        byte[] type = entry.type() != null ? entry.type().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        // Messages are single lines
+        byte[] typeErrors = String.join("\n", entry.typeErrors()).getBytes(StandardCharsets.UTF_8);
+        byte[] program = entry.typeOk() ? entry.program().toByteArray() : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 1 + Integer.BYTES + type.length + Integer.BYTES +
+                typeErrors.length + program.length);
+
+        buffer.putInt(MAGIC).put((byte) (entry.typeOk() ? 1 : 0)).putInt(type.length).put(type)
+                .putInt(typeErrors.length).put(typeErrors).put(program);
+
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+
+        try {
+            Files.write(temporary, buffer.array());
+            Files.move(temporary, directory.resolve(key + EXTENSION), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        evict();
+    }
+
+    /**
+     * Read a string stored as its length in bytes followed by its UTF-8 encoding.
+     */
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+
+        if (length < 0 || length > buffer.remaining())
+            throw new IOException("Truncated cache entry.");
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Delete the least recently used entries until the cache fits its size bound.
+     */
+    private synchronized void evict() throws IOException {
+        record Stored(Path path, long size, long lastUsed) {
+        }
+
+        ArrayList<Stored> entries = new ArrayList<>();
+        long total = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new Stored(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    total += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted by another process
+                }
+            }
+        }
+
+        if (total <= maxSize)
+            return;
+
+        entries.sort((a, b) -> Long.compare(a.lastUsed(), b.lastUsed()));
+
+        for (Stored entry : entries) {
+            if (total <= maxSize)
+                break;
+
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+}
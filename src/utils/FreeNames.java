@@ -0,0 +1,125 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Names used by a part of the program and not declared in it: variables read, variables assigned and functions
+ * called. The scopes the part declares are tracked while walking it, so names declared after their use are free.
+ */
+public class FreeNames {
+    /**
+     * Names declared in the scopes open, innermost last.
+     */
+    private final ArrayList<HashSet<String>> scopes = new ArrayList<>();
+    /**
+     * Free names in order of first use.
+     */
+    private final LinkedHashSet<String> read = new LinkedHashSet<>();
+    private final LinkedHashSet<String> assigned = new LinkedHashSet<>();
+    private final LinkedHashSet<String> called = new LinkedHashSet<>();
+    /**
+     * Number of uses of every free name.
+     */
+    private final HashMap<String, Integer> uses = new HashMap<>();
+    /**
+     * Number of assignments to every free name.
+     */
+    private final HashMap<String, Integer> assignments = new HashMap<>();
+
+    public FreeNames() {
+        newScope();
+    }
+
+    /**
+     * Enter a new scope.
+     */
+    public void newScope() {
+        scopes.add(new HashSet<>());
+    }
+
+    /**
+     * Exits the current scope.
+     */
+    public void exitScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    /**
+     * Declare a name in the current scope.
+     *
+     * @param id Identifier declared.
+     */
+    public void declare(String id) {
+        scopes.get(scopes.size() - 1).add(id);
+    }
+
+    private boolean isDeclared(String id) {
+        for (HashSet<String> scope : scopes)
+            if (scope.contains(id))
+                return true;
+
+        return false;
+    }
+
+    public void read(String id) {
+        if (!isDeclared(id)) {
+            read.add(id);
+            uses.merge(id, 1, Integer::sum);
+        }
+    }
+
+    public void assign(String id) {
+        if (!isDeclared(id)) {
+            assigned.add(id);
+            uses.merge(id, 1, Integer::sum);
+            assignments.merge(id, 1, Integer::sum);
+        }
+    }
+
+    public void call(String id) {
+        if (!isDeclared(id)) {
+            called.add(id);
+            uses.merge(id, 1, Integer::sum);
+        }
+    }
+
+    public LinkedHashSet<String> getRead() {
+        return read;
+    }
+
+    public LinkedHashSet<String> getAssigned() {
+        return assigned;
+    }
+
+    public LinkedHashSet<String> getCalled() {
+        return called;
+    }
+
+    /**
+     * @param id Identifier.
+     * @return Number of times the free name is read, assigned or called.
+     */
+    public int getUses(String id) {
+        return uses.getOrDefault(id, 0);
+    }
+
+    /**
+     * @param id Identifier.
+     * @return Number of times the free name is assigned.
+     */
+    public int getAssignments(String id) {
+        return assignments.getOrDefault(id, 0);
+    }
+
+    /**
+     * Check if no name is free.
+     *
+     * @return true if the part only uses names it declares, false otherwise.
+     */
+    public boolean isEmpty() {
+        return read.isEmpty() && assigned.isEmpty() && called.isEmpty();
+    }
+}
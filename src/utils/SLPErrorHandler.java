@@ -1,6 +1,8 @@
 package utils;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 import org.antlr.v4.runtime.*;
@@ -35,14 +37,8 @@ public class SLPErrorHandler extends BaseErrorListener {
      */
     public void toLog(String filename) throws IOException {
         String logDirPath = System.getProperty("user.dir") + "/tests/log";
-        // Create log directory if not exists
-        File logDir = new File(logDirPath);
-
-        if (!logDir.exists())
-            if(!logDir.mkdir()) {
-                System.out.println("Error during the creation of the log folder.");
-                System.exit(1);
-            }
+        // Create log directory if not exists, also when several files are compiled at once
+        Files.createDirectories(Path.of(logDirPath));
 
         BufferedWriter writer = new BufferedWriter(new FileWriter(logDirPath + "/" + filename + ".log"));
         writer.write(this.toString());
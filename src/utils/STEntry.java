@@ -28,6 +28,10 @@ public class STEntry {
      * Keep track if variable is initialized in a if branch.
      */
     private boolean conditionInitializedWarning = false;
+    /**
+     * Keep track if the function only uses its own names, so that it never reads its access link.
+     */
+    private boolean closed = false;
 
     /**
      * Constructor for variable entries.
@@ -76,6 +80,7 @@ public class STEntry {
         this.label = entry.label;
         this.initialized = entry.initialized;
         this.conditionInitializedWarning = entry.conditionInitializedWarning;
+        this.closed = entry.closed;
     }
 
 
@@ -127,4 +132,20 @@ public class STEntry {
         conditionInitializedWarning = true;
         initialized = true;
     }
+
+    /**
+     * Check if the function entry only uses its own names.
+     *
+     * @return true if the function never reads its access link, false otherwise.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Mark function entry as only using its own names.
+     */
+    public void markClosed() {
+        closed = true;
+    }
 }
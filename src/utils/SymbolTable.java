@@ -13,10 +13,18 @@ public class SymbolTable {
      * Offset list.
      */
     private final ArrayList<Integer> offsetList;
+    /**
+     * Compilation the symbol table belongs to.
+     */
+    private final CompilationContext context;
 
-    public SymbolTable() {
+    /**
+     * @param context Compilation the symbol table belongs to.
+     */
+    public SymbolTable(CompilationContext context) {
         this.table = new ArrayList<>();
         this.offsetList = new ArrayList<>();
+        this.context = context;
     }
 
     /**
@@ -37,6 +45,14 @@ public class SymbolTable {
         }
 
         this.offsetList = new ArrayList<>(symbolTable.offsetList);
+        this.context = symbolTable.context;
+    }
+
+    /**
+     * @return Compilation the symbol table belongs to.
+     */
+    public CompilationContext getContext() {
+        return context;
     }
 
 
@@ -128,6 +144,7 @@ public class SymbolTable {
      */
     public void exitScope() {
         table.remove(table.size() - 1);
+        offsetList.remove(offsetList.size() - 1);
     }
 
     /**